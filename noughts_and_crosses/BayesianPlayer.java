@@ -0,0 +1,242 @@
+package noughts_and_crosses;
+import java.util.Arrays;
+
+/**
+ * A BayesianPlayer keeps, for every move in every state it has played,
+ * a Dirichlet distribution over the outcomes of the game (win, draw, or
+ * loss) that followed the move: a prior pseudo-count for each outcome,
+ * plus the number of times that outcome has actually followed the move.
+ * It plays the move with the highest expected utility under that
+ * distribution, where a win, draw and loss have utilities WIN_UTILITY,
+ * DRAW_UTILITY and LOSS_UTILITY respectively.
+ *
+ * The counts are kept in a single packed int array, three ints per cell
+ * per state, with states indexed by the inherited Policy. The best move in
+ * each state (and its expected utility) is kept up to date as the counts
+ * change, so choosing a move is a single lookup; only when the best move's
+ * expected utility falls does the state need rescanning. A state in which
+ * no move has been played yet falls back on the Policy (like a
+ * RandomPlayer), and so does a forfeit
+ * @author H Gulliver
+ *
+ */
+public class BayesianPlayer extends RandomPlayer {
+	private static final int INITIAL_CAPACITY = 64;
+	static final double WIN_UTILITY = 1.0, DRAW_UTILITY = 0.0, LOSS_UTILITY = -1.0;
+	// positions of each outcome's count within a cell's three ints
+	private static final int WIN = 0, DRAW = 1, LOSS = 2, NUM_OUTCOMES = 3;
+	// pseudo-count added to each outcome by the Dirichlet prior
+	private final double prior;
+	// counts[(state * numCells + cell) * NUM_OUTCOMES + outcome]; allocated
+	// on the first move, once the size of the board is known
+	private int[] counts;
+	private int numCells;
+	// the best cell of each state, or -1 if no move in it has been played
+	private byte[] bestCells;
+	private double[] bestUtilities;
+	// bitmask of the legal cells of each state
+	private int[] legalCells;
+	// the moves played this game
+	private final int[] trajectoryStates = new int[BoardGeometry.MAX_CELLS];
+	private final int[] trajectoryCells = new int[BoardGeometry.MAX_CELLS];
+	private final int[] trajectoryTurns = new int[BoardGeometry.MAX_CELLS];
+	private int trajectoryLength;
+
+	public BayesianPlayer(String id, double prior, Policy policy) {
+		super(id, false, policy);
+		if (prior <= 0) {
+			throw new IllegalArgumentException("The prior pseudo-count must be positive");
+		}
+		this.prior = prior;
+		this.bestCells = new byte[INITIAL_CAPACITY];
+		this.bestUtilities = new double[INITIAL_CAPACITY];
+		this.legalCells = new int[INITIAL_CAPACITY];
+	}
+
+	public BayesianPlayer(String id, double prior) {
+		this(id, prior, new DensePolicy());
+	}
+
+	public BayesianPlayer(String id) {
+		// a uniform prior
+		this(id, 1.0);
+	}
+
+	/**
+	 * makes sure the per-state arrays have room for a state, and
+	 * records its legal cells if it is new
+	 * @param state the index of the state
+	 * @param board the Board in that state
+	 */
+	private void ensureState(int state, Board board) {
+		int capacity = this.bestCells.length;
+		if (this.counts == null) {
+			// the Policy keeps to one geometry, so this one holds from now on
+			this.numCells = board.board.geometry.numCells;
+			this.counts = new int[capacity * this.numCells * NUM_OUTCOMES];
+		}
+		if (state >= capacity) {
+			int newCapacity = Math.max(2 * capacity, state + 1);
+			this.counts = Arrays.copyOf(this.counts, newCapacity * this.numCells * NUM_OUTCOMES);
+			this.bestCells = Arrays.copyOf(this.bestCells, newCapacity);
+			this.bestUtilities = Arrays.copyOf(this.bestUtilities, newCapacity);
+			this.legalCells = Arrays.copyOf(this.legalCells, newCapacity);
+		}
+		if (this.legalCells[state] == 0) {
+			this.legalCells[state] = board.board.getEmptyCells();
+			this.bestCells[state] = -1;
+		}
+	}
+
+	/**
+	 * calculates the expected utility of a move: the utility of each
+	 * outcome, weighted by its posterior mean probability
+	 * @param state the index of the state
+	 * @param cell  the cell index of the move
+	 * @return a double, the expected utility
+	 */
+	private double expectedUtility(int state, int cell) {
+		int base = (state * this.numCells + cell) * NUM_OUTCOMES;
+		double wins = this.counts[base + WIN] + this.prior;
+		double draws = this.counts[base + DRAW] + this.prior;
+		double losses = this.counts[base + LOSS] + this.prior;
+		double utility = wins * WIN_UTILITY + draws * DRAW_UTILITY + losses * LOSS_UTILITY;
+		return utility / (wins + draws + losses);
+	}
+
+	/**
+	 * finds the best move in a state from scratch, by checking every legal move
+	 * @param state the index of the state
+	 */
+	private void rescan(int state) {
+		int emptyCells = this.legalCells[state];
+		double bestUtility = Double.NEGATIVE_INFINITY;
+		int bestCell = -1;
+		while (emptyCells != 0) {
+			int cell = Integer.numberOfTrailingZeros(emptyCells);
+			emptyCells &= emptyCells - 1; // clear lowest set bit
+			double utility = this.expectedUtility(state, cell);
+			if (utility > bestUtility) {
+				bestUtility = utility;
+				bestCell = cell;
+			}
+		}
+		this.bestCells[state] = (byte) bestCell;
+		this.bestUtilities[state] = bestUtility;
+	}
+
+	/**
+	 * records an outcome following a move, and updates the best move of
+	 * the state: if the move's expected utility has risen past the best,
+	 * it becomes the best, and if the best move's has fallen, the state
+	 * is rescanned
+	 * @param state   the index of the state
+	 * @param cell    the cell index of the move
+	 * @param outcome one of WIN, DRAW, or LOSS
+	 */
+	private void addOutcome(int state, int cell, int outcome) {
+		this.counts[(state * this.numCells + cell) * NUM_OUTCOMES + outcome] += 1;
+		double utility = this.expectedUtility(state, cell);
+		int bestCell = this.bestCells[state];
+		if (bestCell == cell || bestCell < 0) {
+			if (bestCell < 0 || utility < this.bestUtilities[state]) {
+				this.rescan(state);
+			} else {
+				this.bestUtilities[state] = utility;
+			}
+		} else if (utility > this.bestUtilities[state]) {
+			this.bestCells[state] = (byte) cell;
+			this.bestUtilities[state] = utility;
+		}
+	}
+
+	/**
+	 * records the outcome of the game for every move played in it from one
+	 * seat; in self-play the player has moves from both seats
+	 * @param playerNum the seat, 0 for noughts or 1 for crosses
+	 * @param outcome   one of WIN, DRAW, or LOSS
+	 */
+	private void addOutcomeToTrajectory(int playerNum, int outcome) {
+		for (int i = 0; i < this.trajectoryLength; i++) {
+			if (this.trajectoryTurns[i] % 2 == playerNum) {
+				this.addOutcome(this.trajectoryStates[i], this.trajectoryCells[i], outcome);
+			}
+		}
+	}
+
+	@Override
+	protected void getProbabilities(int state, double[] probabilities) {
+		int bestCell = this.bestCells[state];
+		if (bestCell < 0) {
+			super.getProbabilities(state, probabilities);
+		} else {
+			Arrays.fill(probabilities, 0, this.numCells, 0.0);
+			probabilities[bestCell] = 1.0;
+		}
+	}
+
+	@Override
+	public Move getMove(Board board, boolean verbose) {
+		int state = this.findKeyState(board);
+		this.ensureState(state, board);
+		Move chosenMove;
+		int bestCell = this.bestCells[state];
+		if (bestCell < 0) {
+			// nothing known about this state yet
+			chosenMove = this.policy.selectMove(state, this.random, verbose);
+		} else {
+			chosenMove = board.board.getMove(bestCell);
+			if (verbose) {
+				System.out.println(String.format("%d%d %.3f", chosenMove.row, chosenMove.col, this.bestUtilities[state]));
+			}
+		}
+		this.trajectoryStates[this.trajectoryLength] = state;
+		this.trajectoryCells[this.trajectoryLength] = board.board.cellIndex(chosenMove.row, chosenMove.col);
+		this.trajectoryTurns[this.trajectoryLength] = board.board.turn;
+		this.trajectoryLength += 1;
+		return chosenMove;
+	}
+
+	@Override
+	public void startGame() {
+		this.trajectoryLength = 0;
+	}
+
+	@Override
+	public int forfeit() {
+		this.numForfeits += 1;
+		this.numLosses += 1;
+		// the forfeited move is the last one asked for, whichever seat it was from
+		this.addOutcomeToTrajectory(this.trajectoryTurns[this.trajectoryLength - 1] % 2, LOSS);
+		return this.numForfeits;
+	}
+
+	@Override
+	public int winForfeit() {
+		this.numWins += 1;
+		// if won by forfeit, nothing to learn, as the
+		// forfeit was down to the other player
+		return this.numWins;
+	}
+
+	@Override
+	public int win(int playerNum) {
+		this.numWins += 1;
+		this.addOutcomeToTrajectory(playerNum, WIN);
+		return this.numWins;
+	}
+
+	@Override
+	public int lose(int playerNum) {
+		this.numLosses += 1;
+		this.addOutcomeToTrajectory(playerNum, LOSS);
+		return this.numLosses;
+	}
+
+	@Override
+	public int draw(int playerNum) {
+		this.numDraws += 1;
+		this.addOutcomeToTrajectory(playerNum, DRAW);
+		return this.numDraws;
+	}
+}
@@ -2,12 +2,13 @@ package noughts_and_crosses;
 
 /**
  * A Board object represents a noughts-and-crosses board
- * This is a 3x3 square grid (although the code is written
- * to allow arbitrary square grids) on which two players
+ * This is a 3x3 square grid by default, but can be any
+ * rectangular grid given by a BoardGeometry, on which two players
  * ("noughts" and "crosses") take turns to draw their symbols
  * ('O' and 'X' respectively). A player wins if they fill
- * every cell in a single row, column, or main diagonal with
- * their symbol. A player forfeits if they try to draw a symbol
+ * a winning line (on the default board, a whole row, column,
+ * or main diagonal; in general, the geometry's number of cells
+ * in a row, column, or diagonal) with their symbol. A player forfeits if they try to draw a symbol
  * in a cell that doesn't exist or that has already been filled.
  * If every cell is filled and no player has won or forfeited,
  * the game ends in a draw. 
@@ -15,14 +16,18 @@ package noughts_and_crosses;
  *
  */
 public class Board {
-	public final int BOARD_SIZE = 3, NUMBER_PLAYERS = 2;
+	public final int NUMBER_PLAYERS = 2;
 	public GameState board;
 	final char NOUGHTS = 'O', CROSSES = 'X';
 	public final char[] PLAYERS = {NOUGHTS, CROSSES};
 	char nextSymbol;
 	
 	public Board() {
-		this.board = new GameState();
+		this(BoardGeometry.STANDARD);
+	}
+	
+	public Board(BoardGeometry geometry) {
+		this.board = new GameState(geometry);
 		this.updateSymbol();
 	}
 	
@@ -37,6 +42,14 @@ public class Board {
 		this(that.board);
 	}
 	
+	/**
+	 * clears the board for a new game, reusing its GameState
+	 */
+	public void reset() {
+		this.board.reset();
+		this.updateSymbol();
+	}
+	
 	/**
 	 * checks who the next player will be from turn number
 	 * and updates the nextSymbol accordingly
@@ -62,17 +75,43 @@ public class Board {
 		}
 	}
 	
+	/**
+	 * processes a move of the game, given as a cell index
+	 * @param cell the bit index of the cell to play in
+	 * @return true if move successful
+	 */
+	public boolean makeMove(int cell) {
+		try {
+			this.board.makeMove(cell, this.nextSymbol);
+			this.updateSymbol();
+			return true;
+		} catch (ArrayIndexOutOfBoundsException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * takes back the most recent move, so that the previous
+	 * player is next to play again
+	 */
+	public void unmakeMove() {
+		this.board.unmakeMove();
+		this.updateSymbol();
+	}
+	
 	/**
 	 * prints the board in a human-readable way
 	 */
 	public void displayBoard() {
-		String printableBoard = "-------\n";
-		for (int row = 0; row < this.board.BOARD_SIZE; row++) {
+		BoardGeometry geometry = this.board.geometry;
+		String divider = "-".repeat(2 * geometry.cols + 1) + "\n";
+		String printableBoard = divider;
+		for (int row = 0; row < geometry.rows; row++) {
 			printableBoard += "|";
-			for (int col = 0; col < this.board.BOARD_SIZE; col++) {
-				printableBoard += this.board.state[row][col] + "|";
+			for (int col = 0; col < geometry.cols; col++) {
+				printableBoard += this.board.getSymbol(row, col) + "|";
 			}
-			printableBoard += "\n-------\n";
+			printableBoard += "\n" + divider;
 		}
 		
 		System.out.println(printableBoard);
@@ -81,20 +120,13 @@ public class Board {
 	
 	/**
 	 * determines the result (winner, draw, or unfinished)
-	 * of the game
+	 * of the game. The GameState keeps this up to date as
+	 * moves are made, so no rescan of the board is needed
 	 * @return char  'O' if noughts has won, 'X' if crosses has won,
 	 *               'D' if a draw, ' ' if the game is unfinished 
 	 */
 	public char getResult() {
-		for (char player : PLAYERS) {
-			if (this.board.hasWon(player)) {
-				return player;
-			}
-		}
-		if (this.board.isBoardFull()) {
-			return 'D';
-		}
-		return ' ';
+		return this.board.getResult();
 	}
 
 
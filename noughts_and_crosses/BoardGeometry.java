@@ -0,0 +1,272 @@
+package noughts_and_crosses;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A BoardGeometry describes the board a game is played on: the number of
+ * rows and columns, and how many symbols in a row (horizontally,
+ * vertically, or diagonally) are needed to win. Everything about the board
+ * that does not change during a game is precomputed here once per geometry
+ * and shared by every GameState on it:
+ * - the winning lines, as bitmasks of cells (see GameState), and for each
+ *   cell the lines passing through it, so a win can be checked from the
+ *   last move alone
+ * - the cells in order of how many winning lines pass through them,
+ *   a good order in which to try moves when searching
+ * - the symmetries of the board, as permutations of the cells and as
+ *   byte-at-a-time lookup tables for transforming bitmasks (see
+ *   BoardSymmetry). A square board has eight symmetries (symmetry t means
+ *   "rotate t % 4 times by 90 degrees clockwise, then reflect in the
+ *   vertical axis if t >= 4"); any other rectangle has four (symmetry t
+ *   means "rotate 180 degrees if t is odd, then reflect in the vertical
+ *   axis if t >= 2").
+ *
+ * A board may have at most MAX_CELLS cells, so each player's cells fit in
+ * one int. Geometries are obtained from of (or STANDARD, for 3x3 noughts
+ * and crosses), which hands out a single shared instance per geometry
+ * @author H Gulliver
+ *
+ */
+public final class BoardGeometry implements java.io.Serializable {
+	public static final int MAX_CELLS = Integer.SIZE;
+	static final int CHUNK_BITS = 8;
+	private static final ConcurrentHashMap<Integer, BoardGeometry> GEOMETRIES = new ConcurrentHashMap<Integer, BoardGeometry>();
+	public static final BoardGeometry STANDARD = BoardGeometry.of(3, 3, 3);
+	public final int rows;
+	public final int cols;
+	// number of symbols in a row needed to win
+	public final int winLength;
+	final int numCells;
+	final int fullMask;
+	// one mask per winning line: every run of winLength cells in a
+	// row, column, or diagonal
+	final transient int[] winMasks;
+	// linesThroughCell[cell] lists the masks in winMasks which include cell
+	final transient int[][] linesThroughCell;
+	// every cell, most winning lines through it first
+	final transient int[] moveOrder;
+	final transient int numSymmetries;
+	// cellMaps[t][cell] is the cell that cell is sent to by symmetry t
+	final transient int[][] cellMaps;
+	// inverseCellMaps[t][cell] is the cell that symmetry t sends to cell
+	final transient int[][] inverseCellMaps;
+	// maskTables[t][chunk][bits] is the image under symmetry t of the
+	// bitmask whose chunk-th byte is bits (and is otherwise empty)
+	final transient int[][][] maskTables;
+
+	private BoardGeometry(int rows, int cols, int winLength) {
+		this.rows = rows;
+		this.cols = cols;
+		this.winLength = winLength;
+		this.numCells = rows * cols;
+		this.fullMask = (this.numCells == MAX_CELLS) ? -1 : (1 << this.numCells) - 1;
+		this.winMasks = this.listWinMasks();
+		this.linesThroughCell = this.listLinesThroughCells();
+		this.moveOrder = this.listMoveOrder();
+		this.numSymmetries = (rows == cols) ? 8 : 4;
+		this.cellMaps = this.listCellMaps();
+		this.inverseCellMaps = new int[this.numSymmetries][this.numCells];
+		for (int t = 0; t < this.numSymmetries; t++) {
+			for (int cell = 0; cell < this.numCells; cell++) {
+				this.inverseCellMaps[t][this.cellMaps[t][cell]] = cell;
+			}
+		}
+		this.maskTables = this.listMaskTables();
+	}
+
+	/**
+	 * gets the geometry of a board, building its tables the first time
+	 * @param rows      the number of rows
+	 * @param cols      the number of columns
+	 * @param winLength the number of symbols in a row needed to win
+	 * @return the shared BoardGeometry
+	 */
+	public static BoardGeometry of(int rows, int cols, int winLength) {
+		if (rows < 1 | cols < 1 | rows * cols > MAX_CELLS | rows > Move.MAX_DIMENSION | cols > Move.MAX_DIMENSION) {
+			String error = String.format("A board must have between 1 and %d cells", MAX_CELLS);
+			throw new IllegalArgumentException(error);
+		}
+		if (winLength < 1 | winLength > Math.max(rows, cols)) {
+			throw new IllegalArgumentException("The winning length must fit on the board");
+		}
+		// each dimension is at most MAX_CELLS, so fits in a byte
+		int id = (rows << 16) | (cols << 8) | winLength;
+		return GEOMETRIES.computeIfAbsent(id, key -> new BoardGeometry(rows, cols, winLength));
+	}
+
+	/**
+	 * swaps a deserialized geometry for the shared instance, which
+	 * also restores the (transient) tables
+	 * @return the shared BoardGeometry with the same dimensions
+	 */
+	private Object readResolve() {
+		return BoardGeometry.of(this.rows, this.cols, this.winLength);
+	}
+
+	/**
+	 * converts a row and column into the index of the
+	 * corresponding bit in the bitboards
+	 * @param row the (0-indexed) row of the cell
+	 * @param col the (0-indexed) column of the cell
+	 * @return an int, the bit index of the cell
+	 */
+	int cellIndex(int row, int col) {
+		return row * this.cols + col;
+	}
+
+	/**
+	 * gets the shared Move for a given cell index
+	 * @param cell the bit index of the cell
+	 * @return the Move representing playing in that cell
+	 */
+	Move getMove(int cell) {
+		return Move.of(cell / this.cols, cell % this.cols);
+	}
+
+	/**
+	 * checks if a row and column are on the board
+	 * @param row the (0-indexed) row
+	 * @param col the (0-indexed) column
+	 * @return true if the cell exists
+	 */
+	boolean isOnBoard(int row, int col) {
+		return row >= 0 & row < this.rows & col >= 0 & col < this.cols;
+	}
+
+	/**
+	 * builds the table of winning lines: every run of winLength cells
+	 * along a row, a column, or either direction of diagonal
+	 * @return an array of int bitmasks, one per winning line
+	 */
+	private int[] listWinMasks() {
+		// (row step, column step) of each direction a line can run in
+		int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+		int[] masks = new int[4 * this.numCells];
+		int numLines = 0;
+		for (int[] direction : directions) {
+			for (int row = 0; row < this.rows; row++) {
+				for (int col = 0; col < this.cols; col++) {
+					int endRow = row + (this.winLength - 1) * direction[0];
+					int endCol = col + (this.winLength - 1) * direction[1];
+					if (!this.isOnBoard(endRow, endCol)) {
+						continue;
+					}
+					int mask = 0;
+					for (int i = 0; i < this.winLength; i++) {
+						mask |= 1 << this.cellIndex(row + i * direction[0], col + i * direction[1]);
+					}
+					// a single cell lies on a line in every direction,
+					// but is only one winning line
+					if (this.winLength > 1 || direction == directions[0]) {
+						masks[numLines++] = mask;
+					}
+				}
+			}
+		}
+		return java.util.Arrays.copyOf(masks, numLines);
+	}
+
+	/**
+	 * builds, for each cell, the list of winning lines passing through it
+	 * @return an array indexed by cell, whose entries are arrays of the
+	 *         bitmasks from winMasks which contain that cell
+	 */
+	private int[][] listLinesThroughCells() {
+		int[][] linesThroughCells = new int[this.numCells][];
+		for (int cell = 0; cell < this.numCells; cell++) {
+			int cellBit = 1 << cell;
+			int numLines = 0;
+			for (int winMask : this.winMasks) {
+				if ((winMask & cellBit) != 0) {
+					numLines += 1;
+				}
+			}
+			linesThroughCells[cell] = new int[numLines];
+			int line = 0;
+			for (int winMask : this.winMasks) {
+				if ((winMask & cellBit) != 0) {
+					linesThroughCells[cell][line++] = winMask;
+				}
+			}
+		}
+		return linesThroughCells;
+	}
+
+	/**
+	 * orders the cells by how many winning lines pass through
+	 * them, since those are usually the strongest moves
+	 * @return an array of every cell index, most lines first
+	 */
+	private int[] listMoveOrder() {
+		int[] order = new int[this.numCells];
+		int position = 0;
+		for (int numLines = this.winMasks.length; numLines >= 0; numLines--) {
+			for (int cell = 0; cell < this.numCells; cell++) {
+				if (this.linesThroughCell[cell].length == numLines) {
+					order[position++] = cell;
+				}
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * builds the permutation of cells for each symmetry
+	 * @return an array of numSymmetries permutations of the cells
+	 */
+	private int[][] listCellMaps() {
+		int[][] cellMaps = new int[this.numSymmetries][this.numCells];
+		boolean isSquare = (this.numSymmetries == 8);
+		for (int t = 0; t < this.numSymmetries; t++) {
+			// a rectangle can only be turned through 180 degrees
+			int numRotations = isSquare ? t % 4 : 2 * (t % 2);
+			boolean isReflected = isSquare ? t >= 4 : t >= 2;
+			for (int row = 0; row < this.rows; row++) {
+				for (int col = 0; col < this.cols; col++) {
+					int newRow = row, newCol = col;
+					for (int rotation = 0; rotation < numRotations; rotation++) {
+						// rotate 90 degrees clockwise (twice, for a rectangle,
+						// so rows and cols are back in place by the end)
+						int rotatedRow = newCol;
+						newCol = ((rotation % 2 == 0) ? this.rows : this.cols) - newRow - 1;
+						newRow = rotatedRow;
+					}
+					if (isReflected) {
+						// reflect in the vertical axis
+						newCol = this.cols - newCol - 1;
+					}
+					cellMaps[t][this.cellIndex(row, col)] = this.cellIndex(newRow, newCol);
+				}
+			}
+		}
+		return cellMaps;
+	}
+
+	/**
+	 * builds the byte-at-a-time lookup tables used to transform bitboards
+	 * @return the table maskTables described above
+	 */
+	private int[][][] listMaskTables() {
+		int numChunks = (this.numCells + CHUNK_BITS - 1) / CHUNK_BITS;
+		int[][][] tables = new int[this.numSymmetries][numChunks][1 << CHUNK_BITS];
+		for (int t = 0; t < this.numSymmetries; t++) {
+			for (int chunk = 0; chunk < numChunks; chunk++) {
+				for (int bits = 0; bits < (1 << CHUNK_BITS); bits++) {
+					int image = 0;
+					for (int bit = 0; bit < CHUNK_BITS; bit++) {
+						int cell = chunk * CHUNK_BITS + bit;
+						if ((bits & (1 << bit)) != 0 && cell < this.numCells) {
+							image |= 1 << this.cellMaps[t][cell];
+						}
+					}
+					tables[t][chunk][bits] = image;
+				}
+			}
+		}
+		return tables;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%dx%d, %d in a row", this.rows, this.cols, this.winLength);
+	}
+}
@@ -0,0 +1,122 @@
+package noughts_and_crosses;
+
+/**
+ * BoardSymmetry applies the symmetries of a board, using the tables
+ * precomputed by its BoardGeometry. A square board has eight (the dihedral
+ * group: four rotations, each optionally followed by a reflection), where
+ * symmetry number t means "rotate t % 4 times by 90 degrees clockwise,
+ * then reflect in the vertical axis if t >= 4"; any other rectangle has
+ * only the four which keep its shape (see BoardGeometry).
+ *
+ * Rather than building a rotated or reflected copy of a GameState, a
+ * bitboard is transformed by looking up each byte of it in a table of
+ * pre-permuted bits, so finding the canonical form of a state (the
+ * symmetric image with the smallest key) takes a single pass over the
+ * symmetries with no allocation.
+ * @author H Gulliver
+ *
+ */
+public final class BoardSymmetry {
+
+	private BoardSymmetry() {
+		// static methods only
+	}
+
+	/**
+	 * gives the number of symmetries of a board
+	 * @param geometry the BoardGeometry of the board
+	 * @return an int, 8 for a square board and 4 otherwise
+	 */
+	public static int numSymmetries(BoardGeometry geometry) {
+		return geometry.numSymmetries;
+	}
+
+	/**
+	 * applies a symmetry to a single bitboard
+	 * @param geometry the BoardGeometry of the board
+	 * @param mask     a bitmask of cells
+	 * @param t        the index of the symmetry to apply
+	 * @return the bitmask of the images of those cells
+	 */
+	static int transformMask(BoardGeometry geometry, int mask, int t) {
+		int[][] table = geometry.maskTables[t];
+		int image = 0;
+		for (int chunk = 0; chunk < table.length; chunk++) {
+			image |= table[chunk][(mask >>> (chunk * BoardGeometry.CHUNK_BITS)) & 0xFF];
+		}
+		return image;
+	}
+
+	/**
+	 * finds the symmetry which sends a GameState to its canonical form:
+	 * the image with the smallest packed key. Ties (when the state is
+	 * itself symmetric) are resolved in favour of the lowest symmetry index
+	 * @param state the GameState to canonicalise
+	 * @return an int, the index of the canonicalising symmetry
+	 */
+	public static int findCanonicalSymmetry(GameState state) {
+		int bestSymmetry = 0;
+		long bestKey = state.getKey();
+		for (int t = 1; t < state.geometry.numSymmetries; t++) {
+			long key = BoardSymmetry.transformKey(state, t);
+			if (key < bestKey) {
+				bestKey = key;
+				bestSymmetry = t;
+			}
+		}
+		return bestSymmetry;
+	}
+
+	/**
+	 * finds the packed key (see GameState.getKey) of the image of a
+	 * GameState under a symmetry, without building the image
+	 * @param state the GameState to transform
+	 * @param t     the index of the symmetry to apply
+	 * @return a long, the key of the image
+	 */
+	public static long transformKey(GameState state, int t) {
+		long noughts = BoardSymmetry.transformMask(state.geometry, state.noughts, t) & 0xFFFFFFFFL;
+		long crosses = BoardSymmetry.transformMask(state.geometry, state.crosses, t);
+		return (crosses << 32) | noughts;
+	}
+
+	/**
+	 * writes the image of a GameState under a symmetry into another
+	 * GameState, so that a reusable instance can be used for lookups. The
+	 * image has no moves to take back, so the target's undo stack is
+	 * emptied
+	 * @param source the GameState to transform
+	 * @param t      the index of the symmetry to apply
+	 * @param target the GameState to overwrite with the image
+	 */
+	public static void transformInto(GameState source, int t, GameState target) {
+		target.copyFrom(source);
+		target.noughts = BoardSymmetry.transformMask(source.geometry, source.noughts, t);
+		target.crosses = BoardSymmetry.transformMask(source.geometry, source.crosses, t);
+	}
+
+	/**
+	 * maps a Move made on the image of a board under a symmetry back
+	 * to the corresponding Move on the original board
+	 * @param geometry the BoardGeometry of the board
+	 * @param move     the Move, in the transformed frame
+	 * @param t        the index of the symmetry that was applied to the board
+	 * @return a Move, the corresponding move on the untransformed board
+	 */
+	public static Move untransformMove(BoardGeometry geometry, Move move, int t) {
+		int cell = BoardSymmetry.untransformCell(geometry, geometry.cellIndex(move.row, move.col), t);
+		return geometry.getMove(cell);
+	}
+
+	/**
+	 * maps a cell index on the image of a board under a symmetry back
+	 * to the corresponding cell index on the original board
+	 * @param geometry the BoardGeometry of the board
+	 * @param cell     the bit index of a cell, in the transformed frame
+	 * @param t        the index of the symmetry that was applied to the board
+	 * @return an int, the corresponding cell on the untransformed board
+	 */
+	public static int untransformCell(BoardGeometry geometry, int cell, int t) {
+		return geometry.inverseCellMaps[t][cell];
+	}
+}
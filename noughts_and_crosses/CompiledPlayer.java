@@ -0,0 +1,228 @@
+package noughts_and_crosses;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * A CompiledPlayer is a frozen snapshot of a trained RandomPlayer (or any
+ * of its learning subclasses), for use once training is over. Compiling
+ * reads every state out of the source's Policy into an immutable open
+ * addressing table keyed by the packed GameState key, holding either just
+ * the most likely move in each state (greedy play) or the whole
+ * distribution, quantized to multiples of 1 / LEVELS as a cumulative table
+ * of bytes. The source can carry on learning afterwards without changing
+ * the snapshot.
+ *
+ * Looking a move up never adds states or changes anything, and allocates
+ * nothing, so selectCell can be called from many threads at once (each
+ * with its own RandomGenerator). getMove, like any Player's, samples with
+ * the Player's own generator, which is not thread-safe, so a CompiledPlayer
+ * must only be in one game at a time; concurrent callers should share the
+ * snapshot through selectCell instead. States the source never saw are
+ * given a uniformly random legal move. If the source was symmetrised,
+ * boards are canonicalised before lookup and the move mapped back, just as
+ * the source did
+ * @author H Gulliver
+ *
+ */
+public class CompiledPlayer extends Player {
+	// number of steps the cumulative distributions are quantized to
+	private static final int LEVELS = 255;
+	// marks an empty slot of the table
+	private static final byte EMPTY = -1;
+	// whether the keys are canonical forms under BoardSymmetry
+	private final boolean symmetrised;
+	// geometry of the source's states, and so of every board played on
+	private final BoardGeometry geometry;
+	private final int numCells;
+	private final int numStates;
+	private final int mask;
+	private final long[] keys;
+	// the most likely cell of the state in each slot, or EMPTY
+	private final byte[] bestCells;
+	// cumulative[slot * numCells + cell] is LEVELS times the probability of
+	// choosing this cell or a lower one, rounded; null for greedy play
+	private final byte[] cumulative;
+
+	public CompiledPlayer(String id, RandomPlayer source, boolean greedy) {
+		super(id);
+		this.symmetrised = source.isSymmetrised();
+		int numStates = source.policy.size();
+		this.numStates = numStates;
+		// a source that never played has no states, and any board will do
+		BoardGeometry geometry = source.policy.getGeometry();
+		this.geometry = (geometry == null) ? BoardGeometry.STANDARD : geometry;
+		this.numCells = this.geometry.numCells;
+		// at most half full, so probe sequences stay short
+		int capacity = Integer.highestOneBit(Math.max(2 * numStates, 2) - 1) << 1;
+		this.mask = capacity - 1;
+		this.keys = new long[capacity];
+		this.bestCells = new byte[capacity];
+		Arrays.fill(this.bestCells, EMPTY);
+		this.cumulative = greedy ? null : new byte[capacity * this.numCells];
+
+		double[] probabilities = new double[this.numCells];
+		for (int state = 0; state < numStates; state++) {
+			long key = source.policy.getKey(state);
+			int slot = StateIndex.hash(key) & this.mask;
+			while (this.bestCells[slot] != EMPTY) {
+				slot = (slot + 1) & this.mask;
+			}
+			source.getProbabilities(state, probabilities);
+			int bestCell = 0;
+			for (int cell = 1; cell < this.numCells; cell++) {
+				if (probabilities[cell] > probabilities[bestCell]) {
+					bestCell = cell;
+				}
+			}
+			this.keys[slot] = key;
+			this.bestCells[slot] = (byte) bestCell;
+			if (!greedy) {
+				this.quantize(slot, probabilities);
+			}
+		}
+	}
+
+	public CompiledPlayer(String id, RandomPlayer source) {
+		// greedy play
+		this(id, source, true);
+	}
+
+	/**
+	 * stores a distribution as a cumulative table of bytes
+	 * @param slot          the slot of the state in the table
+	 * @param probabilities the probability of each cell, summing to 1
+	 */
+	private void quantize(int slot, double[] probabilities) {
+		int base = slot * this.numCells;
+		double total = 0.0;
+		int lastCell = 0;
+		for (int cell = 0; cell < this.numCells; cell++) {
+			total += probabilities[cell];
+			this.cumulative[base + cell] = (byte) Math.round(LEVELS * total);
+			if (probabilities[cell] > 0) {
+				lastCell = cell;
+			}
+		}
+		// make sure rounding leaves no gap at the top
+		for (int cell = lastCell; cell < this.numCells; cell++) {
+			this.cumulative[base + cell] = (byte) LEVELS;
+		}
+	}
+
+	/**
+	 * finds the slot holding a state
+	 * @param key the packed key of the state
+	 * @return the slot index, or -1 if the state is not stored
+	 */
+	private int find(long key) {
+		int slot = StateIndex.hash(key) & this.mask;
+		while (this.bestCells[slot] != EMPTY) {
+			if (this.keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * gives the number of states in the snapshot
+	 * @return an int, the number of states compiled from the source
+	 */
+	public int size() {
+		return this.numStates;
+	}
+
+	/**
+	 * chooses the cell to play in a GameState; safe to call from several
+	 * threads at once, provided each passes its own generator
+	 * @param state  the GameState to move in, which is not changed; on
+	 *               the same BoardGeometry as the source's states
+	 * @param random the random number generator to choose with
+	 * @return an int, the cell index (see GameState.cellIndex) of the move
+	 */
+	public int selectCell(GameState state, RandomGenerator random) {
+		if (state.geometry != this.geometry) {
+			throw new IllegalArgumentException("The board is not the geometry the player was compiled for");
+		}
+		int symmetry = 0;
+		long key = state.getKey();
+		if (this.symmetrised) {
+			symmetry = BoardSymmetry.findCanonicalSymmetry(state);
+			key = BoardSymmetry.transformKey(state, symmetry);
+		}
+		int slot = this.find(key);
+		if (slot < 0) {
+			// never seen in training, so any legal move
+			int emptyCells = state.getEmptyCells();
+			for (int skip = random.nextInt(Integer.bitCount(emptyCells)); skip > 0; skip--) {
+				emptyCells &= emptyCells - 1; // clear lowest set bit
+			}
+			return Integer.numberOfTrailingZeros(emptyCells);
+		}
+		int cell;
+		if (this.cumulative == null) {
+			cell = this.bestCells[slot];
+		} else {
+			int choice = random.nextInt(LEVELS);
+			int base = slot * this.numCells;
+			cell = 0;
+			while ((this.cumulative[base + cell] & 0xFF) <= choice) {
+				cell += 1;
+			}
+		}
+		// the table is in the canonical frame, so map back
+		return BoardSymmetry.untransformCell(this.geometry, cell, symmetry);
+	}
+
+	/**
+	 * chooses a move with this Player's own generator (see setRandom), so
+	 * that seeded play is reproducible; not safe to call from several
+	 * threads at once, for which use selectCell, each thread passing its
+	 * own generator
+	 */
+	@Override
+	public Move getMove(Board board, boolean verbose) {
+		Move move = this.geometry.getMove(this.selectCell(board.board, this.random));
+		if (verbose) {
+			System.out.println(String.format("%d%d", move.row, move.col));
+		}
+		return move;
+	}
+
+	@Override
+	public void startGame() {
+		// pass
+	}
+
+	@Override
+	public int forfeit() {
+		this.numForfeits += 1;
+		this.numLosses += 1;
+		return this.numForfeits;
+	}
+
+	@Override
+	public int winForfeit() {
+		this.numWins += 1;
+		return this.numWins;
+	}
+
+	@Override
+	public int win(int playerNum) {
+		this.numWins += 1;
+		return this.numWins;
+	}
+
+	@Override
+	public int lose(int playerNum) {
+		this.numLosses += 1;
+		return this.numLosses;
+	}
+
+	@Override
+	public int draw(int playerNum) {
+		this.numDraws += 1;
+		return this.numDraws;
+	}
+}
@@ -0,0 +1,304 @@
+package noughts_and_crosses;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * A DensePolicy is a compact Policy which keeps the odds for every
+ * state in a single flat array of doubles, laid out by a StateBlocks:
+ * each state is given a dense index, and owns a contiguous block of the
+ * odds array with one entry per legal move, in increasing order of cell
+ * index. The total of each
+ * state's odds is kept up to date as they change, so choosing a move needs
+ * one pass over the block rather than two, and whether the odds need
+ * scaling down is a single comparison. The total is summed afresh whenever
+ * it falls far below its largest value since the last sum, so rounding
+ * error in it stays negligible.
+ * 
+ * Compared with a SelectorPolicy, this stores no GameState copies,
+ * HashMaps or boxed Doubles, so costs roughly a tenth of the heap per
+ * state; it is intended for training large populations of players
+ * @author H Gulliver
+ *
+ */
+public class DensePolicy implements Policy {
+	private static final int INITIAL_CAPACITY = 64;
+	// entirely arbitrary point at which to simplify the odds of a state
+	private static final double MAX_ODDS = Math.pow(2, 20);
+	// the total is summed afresh when it falls this far below its high water
+	private static final double MIN_TOTAL_FRACTION = Math.pow(2, -10);
+	// index, legal cells and start in odds of each state
+	private final StateBlocks blocks;
+	private double[] odds;
+	// running total of each state's odds
+	private double[] totals;
+	// largest total of each state since it was last summed afresh
+	private double[] highWaters;
+	
+	public DensePolicy() {
+		this.blocks = new StateBlocks();
+		this.totals = new double[INITIAL_CAPACITY];
+		this.highWaters = new double[INITIAL_CAPACITY];
+		this.odds = new double[INITIAL_CAPACITY * BoardGeometry.STANDARD.numCells];
+	}
+	
+	@Override
+	public int findState(GameState state) {
+		int numStates = this.blocks.size();
+		int index = this.blocks.findState(state);
+		if (index == numStates) {
+			this.addState(index);
+		}
+		return index;
+	}
+	
+	/**
+	 * makes room in the odds array for the block of a new state, and
+	 * gives every legal move in it equal odds
+	 * @param index the index of the new state
+	 */
+	private void addState(int index) {
+		if (index == this.totals.length) {
+			this.totals = Arrays.copyOf(this.totals, 2 * index);
+			this.highWaters = Arrays.copyOf(this.highWaters, 2 * index);
+		}
+		int numMoves = this.blocks.getNumMoves(index);
+		if (this.blocks.numEntries > this.odds.length) {
+			this.odds = Arrays.copyOf(this.odds, 2 * this.odds.length + numMoves);
+		}
+		int start = this.blocks.offsets[index];
+		Arrays.fill(this.odds, start, start + numMoves, 1.0);
+		this.totals[index] = numMoves;
+		this.highWaters[index] = numMoves;
+	}
+	
+	/**
+	 * sums the odds of a state afresh, into its running total
+	 * @param state the index of the state
+	 */
+	private void sumOdds(int state) {
+		int start = this.blocks.offsets[state];
+		int end = start + this.blocks.getNumMoves(state);
+		double total = 0.0;
+		for (int i = start; i < end; i++) {
+			total += this.odds[i];
+		}
+		this.totals[state] = total;
+		this.highWaters[state] = total;
+	}
+	
+	/**
+	 * multiplies the odds of one entry, keeping the state's running total
+	 * up to date and simplifying its odds if they are getting large
+	 * @param state      the index of the state
+	 * @param entry      the index in this.odds of the move's odds
+	 * @param multiplier a positive double to multiply the odds by
+	 */
+	private void multiplyEntry(int state, int entry, double multiplier) {
+		double oldOdds = this.odds[entry];
+		this.odds[entry] = oldOdds * multiplier;
+		double total = this.totals[state] + (this.odds[entry] - oldOdds);
+		this.totals[state] = total;
+		if (total > MAX_ODDS) {
+			this.simplifyOdds(state);
+		} else if (total > this.highWaters[state]) {
+			this.highWaters[state] = total;
+		} else if (total < this.highWaters[state] * MIN_TOTAL_FRACTION) {
+			// most of the total has cancelled out, so its error may not have
+			this.sumOdds(state);
+		}
+	}
+	
+	@Override
+	public BoardGeometry getGeometry() {
+		return this.blocks.geometry;
+	}
+	
+	@Override
+	public int size() {
+		return this.blocks.size();
+	}
+	
+	@Override
+	public long getKey(int state) {
+		return this.blocks.getKey(state);
+	}
+	
+	@Override
+	public void getProbabilities(int state, double[] probabilities) {
+		Arrays.fill(probabilities, 0, this.blocks.geometry.numCells, 0.0);
+		int start = this.blocks.offsets[state];
+		int numMoves = this.blocks.getNumMoves(state);
+		double total = 0;
+		for (int entry = start; entry < start + numMoves; entry++) {
+			total += this.odds[entry];
+		}
+		int legal = this.blocks.legalCells[state];
+		for (int entry = 0; entry < numMoves; entry++) {
+			int cell = Integer.numberOfTrailingZeros(legal);
+			legal &= legal - 1; // clear lowest set bit
+			// if all odds are zero, every move is equally likely
+			probabilities[cell] = (total == 0) ? 1.0 / numMoves : this.odds[start + entry] / total;
+		}
+	}
+	
+	/**
+	 * finds where the odds of a move are stored
+	 * @param state the index of the state
+	 * @param move  a Move, which must be legal in that state
+	 * @return the index in this.odds of the move's odds
+	 */
+	private int findEntry(int state, Move move) {
+		if (!this.blocks.geometry.isOnBoard(move.row, move.col)) {
+			throw new IllegalArgumentException("The move is not legal in this game state");
+		}
+		return this.findEntry(state, this.blocks.geometry.cellIndex(move.row, move.col));
+	}
+	
+	/**
+	 * finds where the odds of a move are stored
+	 * @param state the index of the state
+	 * @param cell  the cell index of a move, which must be legal in that state
+	 * @return the index in this.odds of the move's odds
+	 */
+	private int findEntry(int state, int cell) {
+		if (cell < 0 | cell >= this.blocks.geometry.numCells) {
+			throw new IllegalArgumentException("The move is not legal in this game state");
+		}
+		int entry = this.blocks.findEntry(state, cell);
+		if (entry < 0) {
+			throw new IllegalArgumentException("The move is not legal in this game state");
+		}
+		return entry;
+	}
+	
+	/**
+	 * finds the Move stored at a given position in a state's block
+	 * @param state the index of the state
+	 * @param entry the position within the state's block (0 for the first move)
+	 * @return the corresponding Move
+	 */
+	private Move findMove(int state, int entry) {
+		int legal = this.blocks.legalCells[state];
+		for (int i = 0; i < entry; i++) {
+			legal &= legal - 1; // clear lowest set bit
+		}
+		return this.blocks.geometry.getMove(Integer.numberOfTrailingZeros(legal));
+	}
+	
+	/**
+	 * prints the available moves and their odds in a state
+	 * intended for debugging and inspection only
+	 * @param state the index of the state
+	 */
+	public void printOdds(int state) {
+		int start = this.blocks.offsets[state];
+		int numMoves = this.blocks.getNumMoves(state);
+		for (int entry = 0; entry < numMoves; entry++) {
+			Move move = this.findMove(state, entry);
+			System.out.print(move.row);
+			System.out.print(move.col);
+			System.out.print(" ");
+			double odds = this.odds[start + entry];
+			if (odds == 0.0) {
+				// to distinguish between actually 0 and rounded to 0 for display
+				System.out.println(0);
+			} else {
+				System.out.println(String.format("%.2f", odds));
+			}
+		}
+		System.out.print("\n");
+	}
+	
+	@Override
+	public Move selectMove(int state, RandomGenerator random, boolean verbose) {
+		if (verbose) {
+			this.printOdds(state);
+		}
+		int start = this.blocks.offsets[state];
+		int numMoves = this.blocks.getNumMoves(state);
+		double total = this.totals[state];
+		if (total == 0) {
+			// if all odds are zero, just pick anything!
+			return this.findMove(state, random.nextInt(numMoves));
+		}
+		double choice = random.nextDouble(total);
+		for (int entry = 0; entry < numMoves - 1; entry++) {
+			choice -= this.odds[start + entry];
+			if (choice < 0) {
+				return this.findMove(state, entry);
+			}
+		}
+		// rounding can leave a sliver of choice over; give it to the last move
+		return this.findMove(state, numMoves - 1);
+	}
+	
+	@Override
+	public void multiplyOdds(int state, Move move, double multiplier) {
+		if (multiplier <= 0) {
+			throw new IllegalArgumentException("The multiplier must be positive");
+		}
+		this.multiplyEntry(state, this.findEntry(state, move), multiplier);
+	}
+	
+	@Override
+	public void reinforce(int[] states, int[] cells, int[] turns, double[] rewardCurve, int length) {
+		// checking whether a state needs simplifying is a single comparison
+		// with its running total, so is done after every multiplication
+		for (int i = 0; i < length; i++) {
+			double multiplier = rewardCurve[turns[i]];
+			if (multiplier <= 0) {
+				throw new IllegalArgumentException("The multiplier must be positive");
+			}
+			this.multiplyEntry(states[i], this.findEntry(states[i], cells[i]), multiplier);
+		}
+	}
+	
+	/**
+	 * divides through the odds of a state to simplify them, once they
+	 * are getting large
+	 * @param state the index of the state
+	 */
+	private void simplifyOdds(int state) {
+		int start = this.blocks.offsets[state];
+		int end = start + this.blocks.getNumMoves(state);
+		for (int i = start; i < end; i++) {
+			this.odds[i] /= 2.0;
+		}
+		this.sumOdds(state);
+	}
+	
+	@Override
+	public void zeroOdds(int state, Move move) {
+		int entry = this.findEntry(state, move);
+		this.odds[entry] = 0.0;
+		this.sumOdds(state);
+		// don't want a situation where all odds are 0
+		if (this.totals[state] == 0.0) {
+			// reset all odds to equal
+			int start = this.blocks.offsets[state];
+			int end = start + this.blocks.getNumMoves(state);
+			Arrays.fill(this.odds, start, end, 1.0);
+			this.sumOdds(state);
+		}
+	}
+	
+	@Override
+	public void makeCertain(int state, Move move) {
+		int entry = this.findEntry(state, move);
+		int start = this.blocks.offsets[state];
+		int end = start + this.blocks.getNumMoves(state);
+		Arrays.fill(this.odds, start, end, 0.0);
+		this.odds[entry] = 1.0;
+		this.sumOdds(state);
+	}
+	
+	@Override
+	public void randomiseOdds(int state, RandomGenerator random) {
+		int start = this.blocks.offsets[state];
+		int end = start + this.blocks.getNumMoves(state);
+		for (int i = start; i < end; i++) {
+			this.odds[i] = random.nextDouble();
+		}
+		this.sumOdds(state);
+	}
+}
@@ -6,6 +6,17 @@ package noughts_and_crosses;
  * players and the board to allow each player to
  * play a move in turn, and reports the result
  * when the game ends.
+ * A Game can also be set up for self-play, where
+ * a single player takes both seats; it then gets
+ * asked for the moves of both sides, and is told
+ * the result from each side's point of view (so
+ * that it can learn from both), but the game is
+ * only counted once in its totals, as noughts
+ * (and a forfeit is only counted as a forfeit,
+ * not also as a win).
+ * A Game (and its Board) can be reset and reused for
+ * game after game, seating new players if need be, so
+ * that playing many games allocates nothing per game
  * @author H Gulliver
  *
  */
@@ -13,6 +24,24 @@ public class Game {
 	PlayerInterface[] players;
 	Board board;
 	final int NUMBER_PLAYERS = 2;
+	boolean selfPlay;
+	
+	public Game(PlayerInterface player) {
+		this(new Board(), player);
+	}
+	
+	public Game(Board board, PlayerInterface player) {
+		this.board = board;
+		this.players = new PlayerInterface[] {player, player};
+		this.selfPlay = true;
+	}
+	
+	// a Game with empty seats, to be filled by reset before it is run
+	public Game(Board board) {
+		this.board = board;
+		this.players = new PlayerInterface[NUMBER_PLAYERS];
+		this.selfPlay = false;
+	}
 	
 	public Game(PlayerInterface[] players) throws PlayerNumberException {
 		this(new Board(), players);
@@ -24,11 +53,46 @@ public class Game {
 			throw new PlayerNumberException(message);
 		}
 		if (players[0] == players[1]) {
-			throw new IllegalArgumentException("Players cannot play against themselves");
+			throw new IllegalArgumentException("Players cannot play against themselves; use the self-play constructor");
 		}
 		
 		this.board = board;
-		this.players = players;
+		// a copy, since reset changes the seats in place
+		this.players = new PlayerInterface[] {players[0], players[1]};
+		this.selfPlay = false;
+	}
+	
+	/**
+	 * clears the board for a new game between the same players
+	 */
+	public void reset() {
+		this.board.reset();
+	}
+	
+	/**
+	 * clears the board for a new game between two new players
+	 * @param noughts the player to move first
+	 * @param crosses the player to move second; not the same as noughts
+	 */
+	public void reset(PlayerInterface noughts, PlayerInterface crosses) {
+		if (noughts == crosses) {
+			throw new IllegalArgumentException("Players cannot play against themselves; use the self-play reset");
+		}
+		this.players[0] = noughts;
+		this.players[1] = crosses;
+		this.selfPlay = false;
+		this.board.reset();
+	}
+	
+	/**
+	 * clears the board for a new self-play game
+	 * @param player the player to take both seats
+	 */
+	public void reset(PlayerInterface player) {
+		this.players[0] = player;
+		this.players[1] = player;
+		this.selfPlay = true;
+		this.board.reset();
 	}
 
 	/**
@@ -55,8 +119,9 @@ public class Game {
 	 */
 	public char runGame(boolean verbose) {
 		char result = this.board.getResult();
-		for (PlayerInterface player : this.players) {
-			player.startGame();
+		this.players[0].startGame();
+		if (!this.selfPlay) {
+			this.players[1].startGame();
 		}
 		while (result == ' ') {
 			int turn = this.board.board.turn;
@@ -71,7 +136,10 @@ public class Game {
 				this.reportResult(result);
 			} else {
 				player.forfeit();
-				otherPlayer.winForfeit();
+				// in self-play the winner is the same player, so only the forfeit counts
+				if (!this.selfPlay) {
+					otherPlayer.winForfeit();
+				}
 				return board.PLAYERS[otherPlayerNumber];
 			}
 		}
@@ -81,7 +149,8 @@ public class Game {
 	/**
 	 * Lets players know the result when the game is over
 	 * (for a non-forfeit reason) by calling their .win,
-	 * .lose, or .draw methods as appropriate
+	 * .lose, or .draw methods as appropriate; a self-play
+	 * player is then asked to count the game only once
 	 * @param result   the char representing the game result
 	 *                 'X' or 'O' for the winner, 'D' for a draw
 	 *                 ' ' if the game is ongoing (in which case
@@ -100,6 +169,9 @@ public class Game {
 			noughtsPlayer.draw(0);
 			crossesPlayer.draw(1);
 		}
+		if (this.selfPlay && result != ' ') {
+			noughtsPlayer.uncountSelfPlay(result);
+		}
 	}
 	
 	/**
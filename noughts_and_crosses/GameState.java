@@ -1,204 +1,377 @@
 package noughts_and_crosses;
 
+/**
+ * A GameState object stores the contents of a noughts-and-crosses
+ * board and the number of turns played so far.
+ * The board is held as a pair of bitboards - one int bitmask per
+ * player, where bit (row * cols + col) is set if that player
+ * has drawn their symbol in that cell. Win detection is then just a
+ * matter of AND-ing a player's bitmask against the table of winning
+ * lines precomputed by the board's BoardGeometry (3x3, three in a row,
+ * unless another geometry is given).
+ * The result of the game is cached and updated by makeMove; since
+ * a new win must include the cell just played, only the lines
+ * through that cell are checked.
+ * Moves can be taken back with unmakeMove, so a search can explore
+ * the game tree on a single GameState instead of copying it per node
+ * @author H Gulliver
+ *
+ */
 public class GameState implements java.io.Serializable{
-	public final int BOARD_SIZE = 3;
-	char[][] state;
+	// not final, so BoardSymmetry.transformInto can reuse a GameState
+	// across boards; shared, and never changed itself
+	BoardGeometry geometry;
+	int noughts;
+	int crosses;
 	public int turn;
-	
+	// 'O' or 'X' if that player has won, 'D' if a draw, ' ' if unfinished
+	char result;
+	// undo stack: each entry packs the cell played (low 8 bits) with the
+	// result before that move (the bits above). Only allocated once a
+	// move is made, so copies used as lookup keys stay small
+	private int[] history;
+	private int historySize;
+
 	public GameState() {
-		this.state = new char[BOARD_SIZE][BOARD_SIZE];
-		for (int row = 0; row < this.BOARD_SIZE; row++) {
-			for (int col = 0; col < this.BOARD_SIZE; col++) {
-				this.state[row][col] = ' ';
-			}
-		}
+		this(BoardGeometry.STANDARD);
+	}
+
+	public GameState(BoardGeometry geometry) {
+		this.geometry = geometry;
+		this.noughts = 0;
+		this.crosses = 0;
 		this.turn = 0;
+		this.result = ' ';
 	}
-	
+
+	// copy constructor; the copy starts with an empty undo stack, so
+	// only moves made on the copy itself can be unmade
 	public GameState(GameState that) {
-		this.state = new char[BOARD_SIZE][BOARD_SIZE];
+		this.geometry = that.geometry;
+		this.noughts = that.noughts;
+		this.crosses = that.crosses;
 		this.turn = that.turn;
-		for (int row = 0; row < this.BOARD_SIZE; row++) {
-			for (int col = 0; col < this.BOARD_SIZE; col++) {
-				this.state[row][col] = that.state[row][col];
-			}
-		}
+		this.result = that.result;
 	}
-	
+
 	public GameState(char[][] state) {
+		// three in a row, or as near as the board allows
+		this(state, BoardGeometry.of(state.length, state[0].length,
+				Math.min(3, Math.max(state.length, state[0].length))));
+	}
+
+	public GameState(char[][] state, BoardGeometry geometry) {
 		int numRows = state.length;
 		int numCols = state[0].length;
-		if (numRows != this.BOARD_SIZE | numCols != this.BOARD_SIZE) {
-			String error = String.format("Number of rows and columns must be %d", this.BOARD_SIZE);
+		if (numRows != geometry.rows | numCols != geometry.cols) {
+			String error = String.format("Number of rows and columns must be %d and %d", geometry.rows, geometry.cols);
 			throw new IllegalArgumentException(error);
 		}
-		this.state = new char[this.BOARD_SIZE][this.BOARD_SIZE];
+		this.geometry = geometry;
 		this.turn = 0;
 		for (int row = 0; row < numRows; row++) {
 			for (int col = 0; col < numCols; col++) {
-				if (state[row][col] == 'X' | state[row][col] == 'O') {
-					this.state[row][col] = state[row][col];
+				int cellBit = 1 << geometry.cellIndex(row, col);
+				if (state[row][col] == 'O') {
+					this.noughts |= cellBit;
+					this.turn += 1;
+				} else if (state[row][col] == 'X') {
+					this.crosses |= cellBit;
 					this.turn += 1;
-				} else {
-					this.state[row][col] = ' ';
 				}
 			}
 		}
+		// no previous move to work from, so check every line
+		if (this.hasWon('O')) {
+			this.result = 'O';
+		} else if (this.hasWon('X')) {
+			this.result = 'X';
+		} else if (this.isBoardFull()) {
+			this.result = 'D';
+		} else {
+			this.result = ' ';
+		}
 	}
-	
+
 	/**
-	 * checks if another GameState object represents the same state 
+	 * clears the board, ready for a new game on the same geometry,
+	 * keeping the undo stack's storage so that nothing is allocated
+	 */
+	public void reset() {
+		this.noughts = 0;
+		this.crosses = 0;
+		this.turn = 0;
+		this.result = ' ';
+		this.historySize = 0;
+	}
+
+	/**
+	 * overwrites this state with a copy of another, like the copy
+	 * constructor but reusing this object (and its undo stack's storage,
+	 * if big enough); the undo stack starts empty
+	 * @param that the GameState to copy
+	 */
+	public void copyFrom(GameState that) {
+		if (this.history != null && this.history.length < that.geometry.numCells) {
+			this.history = null;
+		}
+		this.geometry = that.geometry;
+		this.noughts = that.noughts;
+		this.crosses = that.crosses;
+		this.turn = that.turn;
+		this.result = that.result;
+		this.historySize = 0;
+	}
+
+	/**
+	 * gets the geometry of the board this state is on
+	 * @return the shared BoardGeometry
+	 */
+	public BoardGeometry getGeometry() {
+		return this.geometry;
+	}
+
+	/**
+	 * converts a row and column into the index of the
+	 * corresponding bit in the bitboards
+	 * @param row the (0-indexed) row of the cell
+	 * @param col the (0-indexed) column of the cell
+	 * @return an int, the bit index of the cell
+	 */
+	int cellIndex(int row, int col) {
+		return this.geometry.cellIndex(row, col);
+	}
+
+	/**
+	 * gets the shared Move for a given cell index
+	 * @param cell the bit index of the cell
+	 * @return the Move representing playing in that cell
+	 */
+	Move getMove(int cell) {
+		return this.geometry.getMove(cell);
+	}
+
+	/**
+	 * gets the bitmask of cells filled by a particular player
+	 * @param playerSymbol a char, either 'O' or 'X'
+	 * @return the int bitmask of that player's cells
+	 */
+	private int getMask(char playerSymbol) {
+		if (playerSymbol == 'O') {
+			return this.noughts;
+		} else if (playerSymbol == 'X') {
+			return this.crosses;
+		} else {
+			throw new IllegalArgumentException("playerSymbol must be one of O or X");
+		}
+	}
+
+	/**
+	 * gets the symbol of the player to move; noughts always moves first
+	 * @return 'O' if noughts is to move, otherwise 'X'
+	 */
+	public char symbolToMove() {
+		return (this.turn % 2 == 0) ? 'O' : 'X';
+	}
+
+	/**
+	 * gets the bitmask of cells no player has drawn in yet
+	 * @return an int bitmask with a bit set for each empty cell
+	 */
+	public int getEmptyCells() {
+		return ~(this.noughts | this.crosses) & this.geometry.fullMask;
+	}
+
+	/**
+	 * gets the symbol drawn in a particular cell
+	 * @param row the (0-indexed) row of the cell
+	 * @param col the (0-indexed) column of the cell
+	 * @return 'O' or 'X' if that player has drawn in the
+	 *         cell, or ' ' if the cell is empty
+	 */
+	public char getSymbol(int row, int col) {
+		int cellBit = 1 << this.cellIndex(row, col);
+		if ((this.noughts & cellBit) != 0) {
+			return 'O';
+		} else if ((this.crosses & cellBit) != 0) {
+			return 'X';
+		}
+		return ' ';
+	}
+
+	/**
+	 * checks if another GameState object represents the same state
 	 * @param that the other GameState object to be compared to this
 	 * @return true if that GameState is the same as this
 	 */
 	public boolean isEqual(GameState that) {
-		if (this.BOARD_SIZE != that.BOARD_SIZE) {
-			return false;
+		return (this.geometry == that.geometry & this.noughts == that.noughts & this.crosses == that.crosses);
+	}
+
+	/**
+	 * packs both bitboards into a single long, noughts in the low
+	 * 32 bits and crosses in the high 32 bits. Two GameStates on the
+	 * same geometry have the same key exactly when they represent the
+	 * same state
+	 * @return a long uniquely identifying this state
+	 */
+	public long getKey() {
+		return ((long) this.crosses << 32) | (this.noughts & 0xFFFFFFFFL);
+	}
+
+	@Override
+	public boolean equals(Object that) {
+		if (this == that) {
+			return true;
 		}
-		
-		for (int row = 0; row < this.BOARD_SIZE; row++) {
-			for (int col = 0; col < this.BOARD_SIZE; col++) {
-				if (this.state[row][col] != that.state[row][col]) {
-					return false;
-				}
-			}
+		if (!(that instanceof GameState)) {
+			return false;
 		}
-		
-		return true;
+		return this.isEqual((GameState) that);
+	}
+
+	@Override
+	public int hashCode() {
+		// multiplicative (Fibonacci) hashing to spread the packed key
+		// over the high bits, which HashMap folds back down
+		return (int) ((this.getKey() * 0x9E3779B97F4A7C15L) >>> 32);
 	}
 
 	/**
 	* processes a move of the game
 	 * @param move   the Move to be attempted
-	 * @return true if move successful
+	 * @param symbol the char ('O' or 'X') of the player making the move
 	 */
 	public void makeMove(Move move, char symbol) {
 		if (this.isMoveLegal(move)) {
-			int row = move.row;
-			int col = move.col;
-			this.state[row][col] = symbol;
-			this.turn += 1;
+			this.makeMove(this.cellIndex(move.row, move.col), symbol);
 		} else {
 			throw new ArrayIndexOutOfBoundsException();
 		}
 	}
-	
-	/** 
-	 * checks if a given move is legal 
-	 * @param move   the Move to be tested
-	 * @return boolean  true if Move is legal in current game state      
+
+	/**
+	 * processes a move of the game, given as a cell index rather
+	 * than a Move, for callers that work with cell indices directly
+	 * @param cell   the bit index of the cell to play in
+	 * @param symbol the char ('O' or 'X') of the player making the move
 	 */
-	public boolean isMoveLegal(Move move) {
-		int row = move.row;
-		int col = move.col;
-		try {
-			if (this.state[row][col] == ' ') {
-				return true;
+	public void makeMove(int cell, char symbol) {
+		if (this.isCellEmpty(cell)) {
+			int cellBit = 1 << cell;
+			if (symbol == 'O') {
+				this.noughts |= cellBit;
+			} else if (symbol == 'X') {
+				this.crosses |= cellBit;
 			} else {
-				return false;
+				throw new IllegalArgumentException("symbol must be one of O or X");
 			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			return false;
+			this.turn += 1;
+			this.pushHistory(cell);
+			this.updateResult(cell, symbol);
+		} else {
+			throw new ArrayIndexOutOfBoundsException();
 		}
 	}
 
 	/**
-	 * checks if a particular player has won
-	 * @param playerSymbol  a char, either 'O' or 'X'
-	 * @return true if that player has won (by
-	 *         having a row, column, or main diagonal
-	 *         full with their symbol)
+	 * takes back the most recent move made on this GameState, restoring
+	 * the cell, the turn count, and the cached result
 	 */
-	public boolean hasWon(char playerSymbol) {
-		boolean rowWin, colWin, diagWin;
-		rowWin = this.checkRowWin(playerSymbol);
-		colWin = this.checkColWin(playerSymbol);
-		diagWin = this.checkDiagWin(playerSymbol);
-		
-		return (rowWin | colWin | diagWin);
-	}
-	
-	/**
-	 * transposes the board - so rows and columns
-	 * are swapped. This is a convenience method
-	 * for checking victory conditions
-	 * @return a char[][] array representing the
-	 *         transposed state of the board 
-	 */
-	private char[][] transpose() {
-		char [][] transposedBoard = new char[BOARD_SIZE][BOARD_SIZE];
-		for (int row = 0; row < BOARD_SIZE; row++) {
-			for (int col = 0; col < BOARD_SIZE; col++) {
-				transposedBoard[col][row] = this.state[row][col];
-			}
+	public void unmakeMove() {
+		if (this.historySize == 0) {
+			throw new IllegalStateException("No moves made on this GameState to unmake");
 		}
-		return transposedBoard;
+		int entry = this.history[--this.historySize];
+		int cellBit = 1 << (entry & 0xFF);
+		this.noughts &= ~cellBit;
+		this.crosses &= ~cellBit;
+		this.turn -= 1;
+		this.result = (char) (entry >>> 8);
 	}
-	
+
 	/**
-	 * checks if a particular player has filled
-	 * a row with their symbol (and hence won)
-	 * @param boardState   a char[][] array representing the
-	 *                     current state of the board 
-	 * @param playerSymbol a char ('O' or 'X') representing
-	 *                     the current player
-	 * @return true if playerSymbol has filled any row
+	 * records a move on the undo stack, before the result is updated
+	 * @param cell the index of the cell just played
 	 */
-	private boolean checkRowWin(char[][] boardState, char playerSymbol) {
-		for (int row = 0; row < BOARD_SIZE; row++) {
-			boolean rowWin = true;
-			for (int col = 0; col < BOARD_SIZE; col++) {
-				rowWin &= (boardState[row][col] == playerSymbol);				
-			}
-			if (rowWin) {
-				return true;
+	private void pushHistory(int cell) {
+		if (this.history == null) {
+			// each move fills a cell, so there can never be more moves than cells
+			this.history = new int[this.geometry.numCells];
+		}
+		this.history[this.historySize++] = (this.result << 8) | cell;
+	}
+
+	/**
+	 * updates the cached result after a move. Only the winning lines
+	 * through the cell just played can have been completed by it, so
+	 * only those are checked
+	 * @param cell   the index of the cell just played
+	 * @param symbol the char ('O' or 'X') of the player who played it
+	 */
+	private void updateResult(int cell, char symbol) {
+		int mask = this.getMask(symbol);
+		for (int winMask : this.geometry.linesThroughCell[cell]) {
+			if ((mask & winMask) == winMask) {
+				this.result = symbol;
+				return;
 			}
 		}
-		return false;
-		
+		if (this.isBoardFull()) {
+			this.result = 'D';
+		}
 	}
-	
+
 	/**
-	 * checks if a particular player has filled
-	 * a row with their symbol (and hence won)
-	 * @param playerSymbol a char ('O' or 'X') representing
-	 *                     the current player
-	 * @return true if playerSymbol has filled any row
+	 * gets the result of the game so far, as cached by makeMove
+	 * @return char  'O' if noughts has won, 'X' if crosses has won,
+	 *               'D' if a draw, ' ' if the game is unfinished
 	 */
-	private boolean checkRowWin(char playerSymbol) {
-		return this.checkRowWin(this.state, playerSymbol);
+	public char getResult() {
+		return this.result;
+	}
+
+	/**
+	 * checks if a given move is legal
+	 * @param move   the Move to be tested
+	 * @return boolean  true if Move is legal in current game state
+	 */
+	public boolean isMoveLegal(Move move) {
+		int row = move.row;
+		int col = move.col;
+		if (!this.geometry.isOnBoard(row, col)) {
+			return false;
+		}
+		return this.isCellEmpty(this.cellIndex(row, col));
 	}
-	
+
 	/**
-	 * checks if a particular player has filled
-	 * a column with their symbol (and hence won)
-	 * @param playerSymbol a char ('O' or 'X') representing
-	 *                     the current player
-	 * @return true if playerSymbol has filled any column
+	 * checks if a given cell is on the board and empty
+	 * @param cell the bit index of the cell
+	 * @return true if playing in the cell is legal
 	 */
-	private boolean checkColWin(char playerSymbol) {
-		// prioritised ease-of-writing over efficiency
-		// might rewrite this to copy checkRowWin for performance improvement
-		char[][] transposedBoard = this.transpose();
-		return this.checkRowWin(transposedBoard, playerSymbol);
+	public boolean isCellEmpty(int cell) {
+		if (cell < 0 | cell >= this.geometry.numCells) {
+			return false;
+		}
+		return (this.getEmptyCells() & (1 << cell)) != 0;
 	}
-	
+
 	/**
-	 * checks if a particular player has filled
-	 * a diagonal with their symbol (and hence won)
-	 * @param playerSymbol a char ('O' or 'X') representing
-	 *                     the current player
-	 * @return true if playerSymbol has filled any diagonal
+	 * checks if a particular player has won
+	 * @param playerSymbol  a char, either 'O' or 'X'
+	 * @return true if that player has won (by
+	 *         having a winning line of the board's
+	 *         geometry full with their symbol)
 	 */
-	private boolean checkDiagWin(char playerSymbol) {
-		boolean leadingDiag = true, trailingDiag = true;
-		for (int row = 0; row < BOARD_SIZE; row++) {
-			leadingDiag &= (this.state[row][row] == playerSymbol);
-			int trailingCol = BOARD_SIZE - row - 1;
-			trailingDiag &= (this.state[row][trailingCol] == playerSymbol);
+	public boolean hasWon(char playerSymbol) {
+		int mask = this.getMask(playerSymbol);
+		for (int winMask : this.geometry.winMasks) {
+			if ((mask & winMask) == winMask) {
+				return true;
+			}
 		}
-		
-		return (leadingDiag | trailingDiag);
+		return false;
 	}
 
 	/**
@@ -208,13 +381,6 @@ public class GameState implements java.io.Serializable{
 	 * @return true if every cell is full
 	 */
 	public boolean isBoardFull() {
-		for (int row = 0; row < this.BOARD_SIZE; row++) {
-			for (int col = 0; col < this.BOARD_SIZE; col++) {
-				if (this.state[row][col] == ' ') {
-					return false;
-				}
-			}
-		}
-		return true;
+		return (this.noughts | this.crosses) == this.geometry.fullMask;
 	}
 }
@@ -43,7 +43,7 @@ public class HumanPlayer extends Player {
 				is_move_confirmed = true;
 			}
 		}
-		Move move = new Move(row, col);
+		Move move = Move.of(row, col);
 		return move;
 		
 	}
@@ -1,6 +1,7 @@
 package noughts_and_crosses;
 import java.util.Scanner;
 import java.io.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
 
@@ -11,6 +12,9 @@ public class Main {
 		int trainingRounds = 10;
 		int competitionRounds = 10;
 		int numPlayers = 10;
+		// every random choice in the experiment derives from this seed,
+		// so runs with the same seed give the same results
+		long seed = (args.length > 0) ? Long.parseLong(args[0]) : 0L;
 		// need number of different rates to be coprime with number of types of player, or else
 		// more cunning setup logic to make sure each type of player gets each learning rate
 		double[] learningRates = {1.001, 1.002, 1.005, 1.01, 1.02};
@@ -34,8 +38,9 @@ public class Main {
 		
 		long startTime = System.currentTimeMillis();
 		
-		// training
-		Tournament training = new Tournament(players, trainingRounds, false);
+		// training, spread across every core
+		Tournament training = new Tournament(players, trainingRounds,
+				new Tournament.Options().recordResults(false).pool(ForkJoinPool.commonPool()).seed(seed));
 		
 		long trainingEndTime = System.currentTimeMillis();
 		double duration = (double)(trainingEndTime - startTime) / 1000.0;
@@ -0,0 +1,161 @@
+package noughts_and_crosses;
+
+/**
+ * A MatchRunner plays a match of many games between two players, e.g. a
+ * candidate being benchmarked against a fixed opponent, without the
+ * overhead of a round-robin Tournament. Every game is played on the same
+ * Game, reset between games, and the results are kept as primitive counts
+ * of the player's wins, draws and losses, split by the colour the player
+ * had. Optionally the result of every game is also kept, in order, in a
+ * ResultSeries (two bits per game).
+ *
+ * By default the colours alternate, the player taking noughts in the first
+ * game; otherwise the player is always noughts. A MatchRunner can be run
+ * several times, carrying on the match (and the alternation) each time
+ * @author H Gulliver
+ *
+ */
+public class MatchRunner {
+	// indices of the counts for each colour the player can have
+	static final int AS_NOUGHTS = 0, AS_CROSSES = 1;
+	final Player player;
+	final Player opponent;
+	final boolean alternateColours;
+	private final Game game;
+	// counts[colour][code], with code as in ResultSeries
+	private final int[][] counts;
+	// the result of every game, or null if not kept
+	private final ResultSeries series;
+	private int numGames;
+
+	public MatchRunner(Player player, Player opponent) {
+		this(player, opponent, true, false);
+	}
+
+	public MatchRunner(Player player, Player opponent, boolean alternateColours, boolean keepSeries) {
+		this(player, opponent, alternateColours, keepSeries, BoardGeometry.STANDARD);
+	}
+
+	public MatchRunner(Player player, Player opponent, boolean alternateColours, boolean keepSeries, BoardGeometry geometry) {
+		if (player == opponent) {
+			throw new IllegalArgumentException("Players cannot play against themselves");
+		}
+		this.player = player;
+		this.opponent = opponent;
+		this.alternateColours = alternateColours;
+		this.game = new Game(new Board(geometry));
+		this.counts = new int[2][4];
+		this.series = keepSeries ? new ResultSeries() : null;
+		this.numGames = 0;
+	}
+
+	/**
+	 * plays a number of games of the match, one after another
+	 * @param numGames an int, the number of games to play
+	 */
+	public void run(int numGames) {
+		for (int i = 0; i < numGames; i++) {
+			this.playGame();
+		}
+	}
+
+	/**
+	 * plays the next game of the match and records its result
+	 * @return a byte, the result for the player: ResultSeries.WIN,
+	 *         DRAW, or LOSS
+	 */
+	byte playGame() {
+		int colour = (this.alternateColours && this.numGames % 2 == 1) ? AS_CROSSES : AS_NOUGHTS;
+		if (colour == AS_NOUGHTS) {
+			this.game.reset(this.player, this.opponent);
+		} else {
+			this.game.reset(this.opponent, this.player);
+		}
+		char result = this.game.runGame();
+		byte code;
+		if (result == 'D') {
+			code = ResultSeries.DRAW;
+		} else if (result == this.game.board.PLAYERS[colour]) {
+			code = ResultSeries.WIN;
+		} else {
+			code = ResultSeries.LOSS;
+		}
+		this.counts[colour][code] += 1;
+		if (this.series != null) {
+			this.series.add(code);
+		}
+		this.numGames += 1;
+		return code;
+	}
+
+	/**
+	 * gives the number of games played so far
+	 * @return an int, the number of games
+	 */
+	public int getNumGames() {
+		return this.numGames;
+	}
+
+	/**
+	 * gives the number of games with a given result for the player
+	 * @param code a byte, ResultSeries.WIN, DRAW, or LOSS
+	 * @return an int, the number of such games, with either colour
+	 */
+	public int getCount(byte code) {
+		return this.counts[AS_NOUGHTS][code] + this.counts[AS_CROSSES][code];
+	}
+
+	/**
+	 * gives the number of games with a given result for the player
+	 * when it had a particular colour
+	 * @param colour an int, AS_NOUGHTS or AS_CROSSES
+	 * @param code   a byte, ResultSeries.WIN, DRAW, or LOSS
+	 * @return an int, the number of such games
+	 */
+	public int getCount(int colour, byte code) {
+		return this.counts[colour][code];
+	}
+
+	/**
+	 * @return an int, the number of games the player won
+	 */
+	public int getWins() {
+		return this.getCount(ResultSeries.WIN);
+	}
+
+	/**
+	 * @return an int, the number of games drawn
+	 */
+	public int getDraws() {
+		return this.getCount(ResultSeries.DRAW);
+	}
+
+	/**
+	 * @return an int, the number of games the player lost
+	 */
+	public int getLosses() {
+		return this.getCount(ResultSeries.LOSS);
+	}
+
+	/**
+	 * gives the result of every game, from the player's point of view
+	 * @return the ResultSeries of the match, or null if it is not kept
+	 */
+	public ResultSeries getSeries() {
+		return this.series;
+	}
+
+	/**
+	 * gathers the player's results into a PlayerResults, e.g. to print
+	 * or graph them; with the series if kept, otherwise just the totals
+	 * @return a PlayerResults object recording the player's results
+	 */
+	public PlayerResults getPlayerResults() {
+		if (this.series != null) {
+			ResultSeries copy = new ResultSeries();
+			copy.addAll(this.series);
+			return new PlayerResults(this.player, copy);
+		}
+		return new PlayerResults(this.player, this.getWins(), this.getDraws(), this.getLosses());
+	}
+}
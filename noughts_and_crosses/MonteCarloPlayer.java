@@ -0,0 +1,383 @@
+package noughts_and_crosses;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A MonteCarloPlayer chooses its moves by Monte Carlo Tree Search with
+ * the UCT selection rule: it plays a fixed budget of simulated games
+ * (playouts) from the current position, growing a tree of the positions
+ * it visits, and plays the move it explored most. It does not learn
+ * between games, but its strength grows with its playout budget, so it
+ * remains useful on boards too large to search exhaustively.
+ *
+ * The search is root-parallel: the budget is split between several
+ * independent trees, searched at the same time on a ForkJoinPool, whose
+ * visit counts at the root are summed to choose the move. Each tree has
+ * its own random number generator, split off the player's in a fixed
+ * order, so the chosen moves are reproducible from a seed however the
+ * trees are scheduled.
+ *
+ * The nodes of each tree are kept in primitive arrays, which are reused
+ * from one move to the next, and every playout is made and unmade on a
+ * single GameState. Rollouts beyond the tree play uniformly random moves,
+ * or can instead follow a CompiledPlayer (e.g., a snapshot of a trained
+ * RandomPlayer, sampling from its distribution). Looking up a
+ * CompiledPlayer changes nothing, so the trees share it without locking,
+ * and a trained player used for rollouts is left exactly as it was
+ * @author H Gulliver
+ *
+ */
+public class MonteCarloPlayer extends Player {
+	private static final double DEFAULT_EXPLORATION = Math.sqrt(2);
+	private final int playoutsPerMove;
+	private final int numTrees;
+	private final double exploration;
+	// the snapshot rollouts follow, or null for uniformly random rollouts
+	private final CompiledPlayer rolloutPlayer;
+	private transient ForkJoinPool pool;
+	private transient SearchTree[] trees;
+
+	public MonteCarloPlayer(String id, int playoutsPerMove, int numTrees, double exploration, RandomPlayer rolloutPlayer) {
+		// a snapshot of the whole distribution, so rollouts sample from it
+		this(id, playoutsPerMove, numTrees, exploration, new CompiledPlayer(rolloutPlayer.playerID, rolloutPlayer, false));
+	}
+
+	public MonteCarloPlayer(String id, int playoutsPerMove, int numTrees, double exploration, CompiledPlayer rolloutPlayer) {
+		super(id);
+		if (playoutsPerMove < 1 | numTrees < 1) {
+			throw new IllegalArgumentException("There must be at least one playout and at least one tree");
+		}
+		this.playoutsPerMove = playoutsPerMove;
+		this.numTrees = numTrees;
+		this.exploration = exploration;
+		this.rolloutPlayer = rolloutPlayer;
+	}
+
+	public MonteCarloPlayer(String id, int playoutsPerMove, int numTrees) {
+		this(id, playoutsPerMove, numTrees, DEFAULT_EXPLORATION, (CompiledPlayer) null);
+	}
+
+	public MonteCarloPlayer(String id, int playoutsPerMove) {
+		// one tree per core
+		this(id, playoutsPerMove, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * sets the pool the trees are searched on; by default the common pool
+	 * @param pool a ForkJoinPool
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * a SearchTree is a single Monte Carlo search tree. Node 0 is the root;
+	 * when a node is expanded, a child is created for every legal move, in
+	 * a contiguous block of the node arrays
+	 * @author H Gulliver
+	 *
+	 */
+	private class SearchTree implements Callable<int[]> {
+		// the cell played to reach each node
+		byte[] cells;
+		// index of each node's first child, or -1 if not yet expanded
+		int[] firstChild;
+		byte[] numChildren;
+		int[] visits;
+		// total reward of the playouts through each node, from the point
+		// of view of the player who made the move into it
+		double[] rewards;
+		int numNodes;
+		// nodes on the path of the current playout
+		final int[] path = new int[BoardGeometry.MAX_CELLS + 1];
+		GameState state;
+		SplittableRandom random;
+		int numPlayouts;
+
+		SearchTree() {
+			this.allocate(1024);
+		}
+
+		/**
+		 * (re)allocates the node arrays, keeping any existing nodes
+		 * @param capacity the number of nodes the arrays can hold
+		 */
+		private void allocate(int capacity) {
+			if (this.cells == null) {
+				this.cells = new byte[capacity];
+				this.firstChild = new int[capacity];
+				this.numChildren = new byte[capacity];
+				this.visits = new int[capacity];
+				this.rewards = new double[capacity];
+			} else {
+				this.cells = Arrays.copyOf(this.cells, capacity);
+				this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+				this.numChildren = Arrays.copyOf(this.numChildren, capacity);
+				this.visits = Arrays.copyOf(this.visits, capacity);
+				this.rewards = Arrays.copyOf(this.rewards, capacity);
+			}
+		}
+
+		/**
+		 * clears the tree, ready to search from a new position
+		 * @param root         the GameState to search from (copied)
+		 * @param random       the generator for this search
+		 * @param numPlayouts  the number of playouts to run
+		 */
+		void reset(GameState root, SplittableRandom random, int numPlayouts) {
+			if (this.state == null) {
+				this.state = new GameState(root);
+			} else {
+				this.state.copyFrom(root);
+			}
+			this.random = random;
+			this.numPlayouts = numPlayouts;
+			this.numNodes = 1;
+			this.cells[0] = -1;
+			this.firstChild[0] = -1;
+			this.numChildren[0] = 0;
+			this.visits[0] = 0;
+			this.rewards[0] = 0.0;
+		}
+
+		/**
+		 * creates the children of a node, one for each legal move
+		 * @param node the index of the node to expand
+		 */
+		private void expand(int node) {
+			int emptyCells = this.state.getEmptyCells();
+			int numMoves = Integer.bitCount(emptyCells);
+			if (this.numNodes + numMoves > this.cells.length) {
+				this.allocate(2 * this.cells.length + numMoves);
+			}
+			this.firstChild[node] = this.numNodes;
+			this.numChildren[node] = (byte) numMoves;
+			for (int i = 0; i < numMoves; i++) {
+				int child = this.numNodes++;
+				this.cells[child] = (byte) Integer.numberOfTrailingZeros(emptyCells);
+				emptyCells &= emptyCells - 1; // clear lowest set bit
+				this.firstChild[child] = -1;
+				this.numChildren[child] = 0;
+				this.visits[child] = 0;
+				this.rewards[child] = 0.0;
+			}
+		}
+
+		/**
+		 * chooses the child of a node to explore, by the UCT rule. Any
+		 * unvisited child is chosen first (at random, if there are several)
+		 * @param node the index of an expanded node
+		 * @return the index of the chosen child
+		 */
+		private int selectChild(int node) {
+			int first = this.firstChild[node];
+			int last = first + this.numChildren[node];
+			double logVisits = Math.log(this.visits[node]);
+			int bestChild = -1;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			int numUnvisited = 0;
+			for (int child = first; child < last; child++) {
+				if (this.visits[child] == 0) {
+					// reservoir sampling between the unvisited children
+					numUnvisited += 1;
+					if (this.random.nextInt(numUnvisited) == 0) {
+						bestChild = child;
+					}
+					continue;
+				}
+				if (numUnvisited > 0) {
+					continue;
+				}
+				double mean = this.rewards[child] / this.visits[child];
+				double value = mean + MonteCarloPlayer.this.exploration * Math.sqrt(logVisits / this.visits[child]);
+				if (value > bestValue) {
+					bestValue = value;
+					bestChild = child;
+				}
+			}
+			return bestChild;
+		}
+
+		/**
+		 * plays moves from the current state until the game ends, chosen
+		 * by the rollout player if there is one, otherwise at random
+		 * @return the number of moves made, to be unmade afterwards
+		 */
+		private int rollout() {
+			int numMoves = 0;
+			CompiledPlayer rolloutPlayer = MonteCarloPlayer.this.rolloutPlayer;
+			while (this.state.getResult() == ' ') {
+				int cell;
+				if (rolloutPlayer != null) {
+					cell = rolloutPlayer.selectCell(this.state, this.random);
+				} else {
+					int emptyCells = this.state.getEmptyCells();
+					int choice = this.random.nextInt(Integer.bitCount(emptyCells));
+					for (int i = 0; i < choice; i++) {
+						emptyCells &= emptyCells - 1; // clear lowest set bit
+					}
+					cell = Integer.numberOfTrailingZeros(emptyCells);
+				}
+				this.state.makeMove(cell, this.state.symbolToMove());
+				numMoves += 1;
+			}
+			return numMoves;
+		}
+
+		/**
+		 * runs a single playout: selection, expansion, rollout, and
+		 * backpropagation, leaving this.state as it was found
+		 */
+		private void playout() {
+			int node = 0;
+			int depth = 0;
+			this.path[depth] = node;
+			// selection, then expansion of the first unexpanded node
+			while (this.state.getResult() == ' ') {
+				if (this.firstChild[node] < 0) {
+					if (this.visits[node] > 0 || node == 0) {
+						this.expand(node);
+					} else {
+						break;
+					}
+				}
+				node = this.selectChild(node);
+				this.state.makeMove(this.cells[node], this.state.symbolToMove());
+				this.path[++depth] = node;
+				if (this.visits[node] == 0) {
+					break;
+				}
+			}
+
+			int numRolloutMoves = this.rollout();
+			char result = this.state.getResult();
+			for (int i = 0; i < numRolloutMoves; i++) {
+				this.state.unmakeMove();
+			}
+
+			// backpropagation, unmaking the tree moves on the way up
+			for (int i = depth; i >= 0; i--) {
+				int pathNode = this.path[i];
+				this.visits[pathNode] += 1;
+				if (i > 0) {
+					// this.state is now the position in which the move into pathNode was made
+					this.state.unmakeMove();
+					char mover = this.state.symbolToMove();
+					if (result == mover) {
+						this.rewards[pathNode] += 1.0;
+					} else if (result == 'D' || result == ' ') {
+						this.rewards[pathNode] += 0.5;
+					}
+				}
+			}
+		}
+
+		@Override
+		public int[] call() {
+			for (int i = 0; i < this.numPlayouts; i++) {
+				this.playout();
+			}
+			// report the number of visits to each move from the root
+			int[] rootVisits = new int[this.state.geometry.numCells];
+			int first = this.firstChild[0];
+			for (int child = first; first >= 0 && child < first + this.numChildren[0]; child++) {
+				rootVisits[this.cells[child]] = this.visits[child];
+			}
+			return rootVisits;
+		}
+	}
+
+	@Override
+	public Move getMove(Board board, boolean verbose) {
+		if (this.trees == null) {
+			this.trees = new SearchTree[this.numTrees];
+			for (int tree = 0; tree < this.numTrees; tree++) {
+				this.trees[tree] = new SearchTree();
+			}
+		}
+		if (this.pool == null) {
+			this.pool = ForkJoinPool.commonPool();
+		}
+		ArrayList<SearchTree> tasks = new ArrayList<SearchTree>(this.numTrees);
+		for (int tree = 0; tree < this.numTrees; tree++) {
+			// share the budget out as evenly as possible
+			int numPlayouts = this.playoutsPerMove / this.numTrees;
+			if (tree < this.playoutsPerMove % this.numTrees) {
+				numPlayouts += 1;
+			}
+			this.trees[tree].reset(board.board, this.random.split(), numPlayouts);
+			tasks.add(this.trees[tree]);
+		}
+
+		int numCells = board.board.geometry.numCells;
+		int[] totalVisits = new int[numCells];
+		try {
+			for (Future<int[]> result : this.pool.invokeAll(tasks)) {
+				int[] rootVisits = result.get();
+				for (int cell = 0; cell < numCells; cell++) {
+					totalVisits[cell] += rootVisits[cell];
+				}
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Monte Carlo search failed", e);
+		}
+
+		// play the most visited legal move
+		int emptyCells = board.board.getEmptyCells();
+		int chosenCell = Integer.numberOfTrailingZeros(emptyCells);
+		for (int cell = 0; cell < numCells; cell++) {
+			if ((emptyCells & (1 << cell)) == 0) {
+				continue;
+			}
+			if (verbose) {
+				Move move = board.board.getMove(cell);
+				System.out.println(String.format("%d%d %d", move.row, move.col, totalVisits[cell]));
+			}
+			if (totalVisits[cell] > totalVisits[chosenCell]) {
+				chosenCell = cell;
+			}
+		}
+		return board.board.getMove(chosenCell);
+	}
+
+	@Override
+	public void startGame() {
+		// pass
+	}
+
+	@Override
+	public int forfeit() {
+		this.numForfeits += 1;
+		this.numLosses += 1;
+		return this.numForfeits;
+	}
+
+	@Override
+	public int winForfeit() {
+		this.numWins += 1;
+		return this.numWins;
+	}
+
+	@Override
+	public int win(int playerNum) {
+		this.numWins += 1;
+		return this.numWins;
+	}
+
+	@Override
+	public int lose(int playerNum) {
+		this.numLosses += 1;
+		return this.numLosses;
+	}
+
+	@Override
+	public int draw(int playerNum) {
+		this.numDraws += 1;
+		return this.numDraws;
+	}
+}
@@ -7,21 +7,84 @@ package noughts_and_crosses;
  * cell to be drawn in. This class is mainly included
  * to allow future extensions to more complicated games,
  * where a move may be more complex than two integers.
+ * 
+ * Moves are immutable, so a single pre-allocated instance
+ * is shared for each cell; use Move.of rather than the
+ * constructor to get it. Hot paths can avoid Move objects
+ * altogether by working with int cell indices (see
+ * GameState.cellIndex and GameState.getMove)
  * @author H Gulliver
  *
  */
 public class Move implements java.io.Serializable {
-	int row;
-	int col;
+	// rows and columns covered by the shared table; a board can have
+	// at most 32 cells (one per bit of an int bitboard)
+	static final int MAX_DIMENSION = 32;
+	private static final Move[][] MOVES = Move.listMoves();
+	final int row;
+	final int col;
 	
 	public Move(int row, int col) {
 		this.row = row;
 		this.col = col;
 	}
 	
+	/**
+	 * builds the shared table of Moves, one for each cell
+	 * @return a 2D array of Moves, indexed by row then column
+	 */
+	private static Move[][] listMoves() {
+		Move[][] moves = new Move[MAX_DIMENSION][MAX_DIMENSION];
+		for (int row = 0; row < MAX_DIMENSION; row++) {
+			for (int col = 0; col < MAX_DIMENSION; col++) {
+				moves[row][col] = new Move(row, col);
+			}
+		}
+		return moves;
+	}
+	
+	/**
+	 * gets the shared Move for a given cell. Cells outside the
+	 * table (e.g., negative rows typed in by a HumanPlayer) get a
+	 * new Move, which will simply be rejected as illegal
+	 * @param row the (0-indexed) row of the cell
+	 * @param col the (0-indexed) column of the cell
+	 * @return a Move representing playing in that cell
+	 */
+	public static Move of(int row, int col) {
+		if (row < 0 | row >= MAX_DIMENSION | col < 0 | col >= MAX_DIMENSION) {
+			return new Move(row, col);
+		}
+		return MOVES[row][col];
+	}
+	
 	public boolean isEqual(Move that) {
 		boolean isRowEqual = (this.row == that.row);
 		boolean isColEqual = (this.col == that.col);
 		return (isRowEqual & isColEqual);
 	}
+	
+	@Override
+	public boolean equals(Object that) {
+		if (this == that) {
+			return true;
+		}
+		if (!(that instanceof Move)) {
+			return false;
+		}
+		return this.isEqual((Move) that);
+	}
+	
+	@Override
+	public int hashCode() {
+		return this.row * MAX_DIMENSION + this.col;
+	}
+	
+	/**
+	 * swaps a deserialized Move for the shared instance
+	 * @return the shared Move for the same cell
+	 */
+	private Object readResolve() {
+		return Move.of(this.row, this.col);
+	}
 }
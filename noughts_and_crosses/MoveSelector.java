@@ -1,57 +1,96 @@
 package noughts_and_crosses;
-import java.util.HashMap;
-import java.util.Random;
-
-// TODO: simply checking a Move is legal when input to a method is
-// not sufficient - we need to check it's actually one of the specific
-// instances in moveArray
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * A MoveSelector object exposes a method for randomly
  * choosing a legal move in the noughts and crosses game.
  * A single instance is fixed to a specific game state,
  * and initially returns any legal move with equal probability.
- * 
+ *
  * It also exposes methods to adjust its probabilities.
  * It is **not** responsible for determining how to adjust the
  * probabilities - it does not implement the learning. It
  * simply remembers the current probabilities and handles
  * move selection according to those.
- * 
+ *
+ * The odds are kept in log space, in an array with one entry per
+ * legal move in increasing order of cell, so multiplying the odds
+ * of a move is a single addition, and they can neither overflow nor
+ * underflow to 0 however long training runs (a zeroed move has log
+ * odds of minus infinity). For sampling, a Fenwick tree (binary
+ * indexed tree) holds each move's odds relative to a reference point,
+ * pivotLogOdds; the tree is updated whenever an entry changes, and
+ * lets selectMove find the chosen move in O(log n) steps, without
+ * copying or summing the odds each time. Only when the odds drift
+ * far from the reference point is it moved and the tree rebuilt.
+ *
+ * Randomness comes from a generator passed in by the caller (normally
+ * the Player's own), so that seeded runs are reproducible.
+ *
  * @author H Gulliver
  *
  */
 public class MoveSelector implements java.io.Serializable{
-	final int BOARD_SIZE;
+	// how far (in log space) odds may rise above the reference point before
+	// it is moved; exp of this must stay well within the range of a double
+	private static final double MAX_LOG_RANGE = 64.0;
+	// the tree is rebuilt when its total falls this far below the largest
+	// value put in it, so that rounding error stays negligible
+	private static final double MIN_TOTAL_FRACTION = Math.pow(2, -30);
 	final GameState gameState;
-	final HashMap<Move, Double> moveOdds;
-	private int numMoves = 0;
-	private Move[] moveArray;
-	private double[] oddsArray;
-	
+	// index of this selector's state in its SelectorPolicy (-1 if none)
+	final int index;
+	// bitmask of the legal cells in gameState
+	private final int legalCells;
+	private final int numMoves;
+	private final Move[] moveArray;
+	// natural log of the odds of each move
+	private final double[] logOddsArray;
+	// number of moves whose odds are not zero
+	private int numNonZero;
+	// the tree stores exp(logOdds - pivotLogOdds) for each move
+	private double pivotLogOdds;
+	// largest value put into the tree since it was last rebuilt
+	private double treeHighWater;
+	// Fenwick tree over the relative odds: oddsTree[i] is the sum of the
+	// relative odds of the moves in positions (i - lowestOneBit(i)), ..., (i - 1)
+	private final double[] oddsTree;
+
 	public MoveSelector(Board board) {
-		this.gameState = new GameState(board.board);
-		this.BOARD_SIZE = this.gameState.BOARD_SIZE;
-		this.moveOdds = this.listLegalMoves();
-		this.moveArray = new Move[numMoves];
-		this.oddsArray = new double[numMoves];
-		int i = 0;
-		for (Move move : this.moveOdds.keySet()) {
-			this.moveArray[i++] = move;
-		}
+		this(board.board);
 	}
-	
+
+	public MoveSelector(GameState gameState) {
+		this(gameState, -1);
+	}
+
+	public MoveSelector(GameState gameState, int index) {
+		// take a copy so later moves on the board do not change this selector
+		this.gameState = new GameState(gameState);
+		this.index = index;
+		this.legalCells = this.gameState.getEmptyCells();
+		this.numMoves = Integer.bitCount(this.legalCells);
+		this.moveArray = this.listLegalMoves();
+		this.logOddsArray = new double[this.numMoves];
+		this.oddsTree = new double[this.numMoves + 1];
+		this.resetOdds();
+	}
+
 	/**
-	 * prints the available moves and their odds
+	 * prints the available moves and their odds (relative to the
+	 * current reference point, so only their ratios are meaningful)
 	 * intended for debugging and inspection only
 	 */
 	public void printOdds() {
-		for (Move move : this.moveOdds.keySet()) {
+		for (int i = 0; i < this.numMoves; i++) {
+			Move move = this.moveArray[i];
 			System.out.print(move.row);
 			System.out.print(move.col);
 			System.out.print(" ");
-			double odds = this.moveOdds.get(move);
-			if (odds == 0.0) {
+			double odds = Math.exp(this.logOddsArray[i] - this.pivotLogOdds);
+			if (this.logOddsArray[i] == Double.NEGATIVE_INFINITY) {
 				// to distinguish between actually 0 and rounded to 0 for display
 				System.out.println(0);
 			} else {
@@ -60,59 +99,106 @@ public class MoveSelector implements java.io.Serializable{
 		}
 		System.out.print("\n");
 	}
-	
+
 	/**
-	 * lists all legal moves in the current game state,
-	 * and assigns an equal probability to each of them
-	 * @return a HashMap with Move objects as keys, one for each
-	 *         legal move in the game, and 1 as all values,
-	 *         representing equal odds of all moves
+	 * lists all legal moves in the current game state
+	 * @return an array of Move objects, one for each legal
+	 *         move in the game, in increasing order of cell
 	 */
-	private HashMap<Move, Double> listLegalMoves() {
-		HashMap<Move, Double> legalMoves = new HashMap<Move, Double>();
-		for (int row = 0; row < this.BOARD_SIZE; row++) {
-			for (int col = 0; col < this.BOARD_SIZE; col++) {
-				Move move = new Move(row, col);
-				if (this.gameState.isMoveLegal(move)) {
-					legalMoves.put(move, 1.0);
-					this.numMoves += 1;
-				}
-			}
+	private Move[] listLegalMoves() {
+		Move[] legalMoves = new Move[this.numMoves];
+		int emptyCells = this.legalCells;
+		for (int i = 0; i < this.numMoves; i++) {
+			int cell = Integer.numberOfTrailingZeros(emptyCells);
+			emptyCells &= emptyCells - 1; // clear lowest set bit
+			legalMoves[i] = this.gameState.getMove(cell);
 		}
 		return legalMoves;
 	}
 
 	/**
-	 * finds the largest value occurring as an odds component
-	 * convenience method
-	 * @return the highest odds component
+	 * finds the position of a move in this.moveArray
+	 * @param move a Move object
+	 * @return the index of the move in this.moveArray
+	 * @throws IllegalArgumentException if the move is not legal
+	 */
+	private int findPosition(Move move) {
+		if (!this.gameState.isMoveLegal(move)) {
+			throw new IllegalArgumentException("The move is not legal in this game state");
+		}
+		int cellBit = 1 << this.gameState.cellIndex(move.row, move.col);
+		// moves are in order of cell, so count the legal cells before this one
+		return Integer.bitCount(this.legalCells & (cellBit - 1));
+	}
+
+	/**
+	 * sets the log odds of the move in a given position, keeping
+	 * the count of non-zero odds and the Fenwick tree up to date
+	 * @param position the index of the move in this.moveArray
+	 * @param logOdds  the new log odds of the move
 	 */
-	private double findMaxOdds() {
-		double maxOdds = 0.0;
-		for (double odds : this.moveOdds.values()) {
-			maxOdds = Math.max(odds, maxOdds);
+	private void setLogOdds(int position, double logOdds) {
+		double oldLogOdds = this.logOddsArray[position];
+		this.logOddsArray[position] = logOdds;
+		if (oldLogOdds == Double.NEGATIVE_INFINITY) {
+			this.numNonZero += 1;
+		}
+		if (logOdds == Double.NEGATIVE_INFINITY) {
+			this.numNonZero -= 1;
+		}
+		if (logOdds - this.pivotLogOdds > MAX_LOG_RANGE) {
+			// too far above the reference point to exponentiate safely
+			this.rebuildTree();
+			return;
+		}
+		double odds = Math.exp(logOdds - this.pivotLogOdds);
+		double change = odds - Math.exp(oldLogOdds - this.pivotLogOdds);
+		this.treeHighWater = Math.max(this.treeHighWater, odds);
+		for (int i = position + 1; i <= this.numMoves; i += Integer.lowestOneBit(i)) {
+			this.oddsTree[i] += change;
 		}
-		return maxOdds;
 	}
 
 	/**
-	 * simplifies the odds ratio by dividing through by a
-	 * constant (with integral division - i.e., quotient)
-	 * @param factor the integer to divide through the odds
-	 *               ratio. E.g., if the odds ratio is
-	 *               3:5:10 and the factor is 3, the new
-	 *               odds ratio will be 1:1:3
+	 * moves the reference point to the largest log odds and rebuilds
+	 * the Fenwick tree in O(n). Used after every entry has changed, or
+	 * when the odds have drifted far from the reference point; this
+	 * also clears any accumulated rounding error in the tree
 	 */
-	private void simplifyOdds(double factor) {
-		for (Move move : this.moveOdds.keySet()) {
-			double oldOdds = this.moveOdds.get(move);
-			double newOdds = oldOdds / factor;
-			this.moveOdds.put(move, newOdds);
+	private void rebuildTree() {
+		double maxLogOdds = Double.NEGATIVE_INFINITY;
+		for (double logOdds : this.logOddsArray) {
+			maxLogOdds = Math.max(maxLogOdds, logOdds);
+		}
+		// if every move is zeroed, any reference point will do
+		this.pivotLogOdds = (maxLogOdds == Double.NEGATIVE_INFINITY) ? 0.0 : maxLogOdds;
+		for (int i = 1; i <= this.numMoves; i++) {
+			this.oddsTree[i] = Math.exp(this.logOddsArray[i - 1] - this.pivotLogOdds);
+		}
+		for (int i = 1; i <= this.numMoves; i++) {
+			int parent = i + Integer.lowestOneBit(i);
+			if (parent <= this.numMoves) {
+				this.oddsTree[parent] += this.oddsTree[i];
+			}
 		}
+		this.treeHighWater = 1.0;
 	}
 
 	/**
-	 * multiplies the odds of a particular move by a given double
+	 * gives the total of all the relative odds, from the Fenwick tree
+	 * @return the sum of exp(logOdds - pivotLogOdds) over every move
+	 */
+	private double totalOdds() {
+		double total = 0.0;
+		for (int i = this.numMoves; i > 0; i -= Integer.lowestOneBit(i)) {
+			total += this.oddsTree[i];
+		}
+		return total;
+	}
+
+	/**
+	 * multiplies the odds of a particular move by a given double,
+	 * which in log space is just an addition
 	 * @param move        the move whose odds are to be changed
 	 * @param multiplier  a double; the odds of playing the given move
 	 *                    are multiplied by this
@@ -121,167 +207,169 @@ public class MoveSelector implements java.io.Serializable{
 		if (multiplier <= 0) {
 			throw new IllegalArgumentException("The multiplier must be positive");
 		}
-		
-		if (!this.gameState.isMoveLegal(move)) {
-			throw new IllegalArgumentException("The move is not legal in this game state");
-		}
-		double currentValue = this.moveOdds.get(move);
-		double newValue = currentValue * multiplier;
-		this.moveOdds.put(move, newValue);
-		
-		// divide through to simplify the odds if some are getting large
-		double maxOdds = this.findMaxOdds();
-		if (maxOdds > Math.pow(2, 20)) { // entirely arbitrary point at which to simplify
-			// orginally just always simplified, but because of integer division that
-			// ended up setting things to 1 that needed to be higher.
-			this.simplifyOdds(2.0);
-		}
-		
+
+		int position = this.findPosition(move);
+		this.setLogOdds(position, this.logOddsArray[position] + Math.log(multiplier));
 	}
 
 	/**
 	 * resets odds to equal
 	 */
 	private void resetOdds() {
-		for (Move move : this.moveOdds.keySet()) {
-			this.moveOdds.put(move, 1.0);
+		for (int i = 0; i < this.numMoves; i++) {
+			this.logOddsArray[i] = 0.0;
 		}
+		this.numNonZero = this.numMoves;
+		this.rebuildTree();
 	}
-	
+
 	/**
 	 * sets the odds of the given move to 0, so the move cannot be played
 	 * @param move the Move object whose odds are to be set to 0
 	 */
 	public void zeroOdds(Move move) {
-		if (!this.gameState.isMoveLegal(move)) {
-			throw new IllegalArgumentException("The move is not legal in this game state");
-		}
-		this.moveOdds.put(move, 0.0);
+		int position = this.findPosition(move);
+		this.setLogOdds(position, Double.NEGATIVE_INFINITY);
 		// don't want a situation where all odds are 0
-		boolean isNonZero = false;
-		for (double odds : this.moveOdds.values()) {
-			isNonZero |= (odds != 0.0);
-		}
-		if (!isNonZero) {
+		if (this.numNonZero == 0) {
 			// reset all odds to equal
 			this.resetOdds();
 		}
 	}
-	
-	/**
-	 * calculates the cumulative sum of an array of ints
-	 * uses Math.addExact to guard against integer overflow,
-	 * so could throw an ArithmeticException
-	 * @param in an Array of ints
-	 * @return an Array of ints whose ith entry is the
-	 *         sum of the first i entries of in
-	 */
-	private double[] cumulativeSum(double[] in) {
-		double[] out = new double[in.length];
-		double total = 0;
-		for (int i = 0; i < in.length; i++) {
-			total += in[i];
-			out[i] = total;
-		}
-		return out;
-	}
-	
+
 	/**
-	 * chooses an index of an int array with odds given by the differences
-	 * of the values in it. E.g., if called with {1,2,4,8},
-	 * the odds of returning 0, 1, 2, 3 respectively will be
-	 * 1:1:2:4. If the array is all zeroes, will simply
-	 * return any index at random
-	 * @param accumulated an array of ints, where each
-	 *                    entry is at least as big as the last;
-	 *                    this.cumulativeSum will return such an array
-	 * @return an int corresponding to an index of the input array
+	 * chooses a random position in this.moveArray, with probability
+	 * proportional to the odds, by descending the Fenwick tree. If the
+	 * odds are all zero, will simply return any position at random
+	 * @param random the random number generator to choose with
+	 * @return an int corresponding to an index of this.moveArray
 	 */
-	private int chooseRandomIndex(double[] accumulated) {
-		Random random = new Random();
-		double max = accumulated[accumulated.length - 1];
-		if (max == 0) {
+	private int chooseRandomIndex(RandomGenerator random) {
+		if (this.numNonZero == 0) {
 			// if all odds are zero, just pick anything!
-			return random.nextInt(accumulated.length);
+			return random.nextInt(this.numMoves);
+		}
+		double total = this.totalOdds();
+		if (total < this.treeHighWater * MIN_TOTAL_FRACTION) {
+			// the odds have fallen far below the reference point
+			this.rebuildTree();
+			total = this.totalOdds();
 		}
-		double choice = random.nextDouble(max);
-		for (int i = 0; i < accumulated.length; i++) {
-			if (accumulated[i] > choice) {
-				return i;
+		double choice = random.nextDouble(total);
+		// find the first position at which the cumulative odds exceed choice
+		int position = 0;
+		for (int step = Integer.highestOneBit(this.numMoves); step > 0; step >>= 1) {
+			int next = position + step;
+			if (next <= this.numMoves && this.oddsTree[next] <= choice) {
+				position = next;
+				choice -= this.oddsTree[next];
 			}
 		}
-		// should never reach this line, but needed to convince Eclipse that
-		// this method really does return! If we do get here, just return
-		// any valid index at random
-		return random.nextInt(accumulated.length);
+		if (position >= this.numMoves || this.logOddsArray[position] == Double.NEGATIVE_INFINITY) {
+			// only reachable through rounding error in the tree; fall
+			// back to the last move with non-zero odds
+			position = this.numMoves - 1;
+			while (position > 0 && this.logOddsArray[position] == Double.NEGATIVE_INFINITY) {
+				position -= 1;
+			}
+		}
+		return position;
 	}
-	
+
 	/**
 	 * makes a particular move certain, so it will always
 	 * be played
 	 * @param move the Move object to be made certain
 	 */
 	public void makeCertain(Move move) {
-		for (Move otherMove : this.moveOdds.keySet()) {
-			if (move != otherMove) {
-				this.zeroOdds(otherMove);
-			} else {
-				this.moveOdds.put(otherMove, 1.0);
-			}
+		int position = this.findPosition(move);
+		for (int i = 0; i < this.numMoves; i++) {
+			this.logOddsArray[i] = Double.NEGATIVE_INFINITY;
 		}
+		this.logOddsArray[position] = 0.0;
+		this.numNonZero = 1;
+		this.rebuildTree();
 	}
-	
+
 	/**
-	 * chooses a move to play. Does this by putting the
-	 * current odds in an array, choosing a random int between 0 and
-	 * the sum of that array, and choosing the index where the cumulative
-	 * sum first exceeds the random int; then returns the corresponding Move
+	 * chooses a move to play, by choosing a random point between 0 and
+	 * the total of the odds and finding (from the Fenwick tree) the move
+	 * at which the cumulative odds first exceed it
+	 * @param random the random number generator to choose with
 	 * @return a Move object representing the chosen move
 	 */
-	public Move selectMove() {
-		// set up odds array to current odds values
-		for (int i = 0; i < this.numMoves; i++) {
-			Move move = this.moveArray[i];
-			double odds = this.moveOdds.get(move);
-			this.oddsArray[i] = odds;
-		}
-		double[] cumulativeOdds;
-		try {
-			cumulativeOdds = this.cumulativeSum(this.oddsArray);
-		} catch (ArithmeticException e) { // if integer overflow
-			this.simplifyOdds(2);
-			return this.selectMove();
-		}
-		
-		int chosenIndex = this.chooseRandomIndex(cumulativeOdds);
+	public Move selectMove(RandomGenerator random) {
+		int chosenIndex = this.chooseRandomIndex(random);
 		Move chosenMove = this.moveArray[chosenIndex];
 		return chosenMove;
 	}
 	
+	/**
+	 * chooses a move to play, using the current thread's generator
+	 * (so the choice is not reproducible from a seed)
+	 * @return a Move object representing the chosen move
+	 */
+	public Move selectMove() {
+		return this.selectMove(ThreadLocalRandom.current());
+	}
+
 	/**
 	 * chooses a move to play, with the option of displaying working.
-	 * Does this by putting the current odds in an array, choosing a random
-	 * int between 0 and the sum of that array, and choosing the index where
-	 * the cumulative sum first exceeds the random int; then returns the
-	 * corresponding Move
+	 * Does this by choosing a random point between 0 and the total of
+	 * the odds and finding the move at which the cumulative odds first
+	 * exceed it
+	 * @param random  the random number generator to choose with
 	 * @param verbose a boolean; if true, prints odds of each move first
 	 * @return a Move object representing the chosen move
 	 */
-	public Move selectMove(boolean verbose) {
+	public Move selectMove(RandomGenerator random, boolean verbose) {
 		if (verbose) {
 			this.printOdds();
 		}
-		return this.selectMove();
+		return this.selectMove(random);
+	}
+
+	/**
+	 * writes the probability of choosing each move into an array
+	 * indexed by cell; cells that are not legal are given 0
+	 * @param probabilities an array to fill, with at least one double per cell
+	 */
+	public void getProbabilities(double[] probabilities) {
+		Arrays.fill(probabilities, 0, this.gameState.geometry.numCells, 0.0);
+		double maxLogOdds = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < this.numMoves; i++) {
+			maxLogOdds = Math.max(maxLogOdds, this.logOddsArray[i]);
+		}
+		double total = 0.0;
+		for (int i = 0; i < this.numMoves; i++) {
+			// relative to the largest, so nothing overflows
+			double odds = (this.numNonZero == 0) ? 1.0 : Math.exp(this.logOddsArray[i] - maxLogOdds);
+			Move move = this.moveArray[i];
+			probabilities[this.gameState.cellIndex(move.row, move.col)] = odds;
+			total += odds;
+		}
+		for (int cell = 0; cell < this.gameState.geometry.numCells; cell++) {
+			probabilities[cell] /= total;
+		}
 	}
 
 	/**
 	 * sets the odds of each move to a random amount
+	 * @param random the random number generator to draw the odds from
 	 */
-	public void randomiseOdds() {
-		for (Move move : this.moveOdds.keySet()) {
-			Random random = new Random();
+	public void randomiseOdds(RandomGenerator random) {
+		this.numNonZero = 0;
+		for (int i = 0; i < this.numMoves; i++) {
 			double odds = random.nextDouble();
-			this.moveOdds.put(move, odds);
+			this.logOddsArray[i] = Math.log(odds);
+			if (odds != 0.0) {
+				this.numNonZero += 1;
+			}
+		}
+		if (this.numNonZero == 0) {
+			this.resetOdds();
+		} else {
+			this.rebuildTree();
 		}
 	}
 }
@@ -0,0 +1,285 @@
+package noughts_and_crosses;
+
+/**
+ * A PerfectPlayer chooses its moves by searching the game tree with
+ * negamax and alpha-beta pruning, so (given enough depth) it never loses
+ * and wins whenever its opponent lets it. It is intended as a fixed,
+ * strong reference opponent, against which to train and measure learning
+ * players. It does not learn.
+ *
+ * The search runs on a single copy of the GameState, using makeMove and
+ * unmakeMove rather than copying per node. Positions already searched are
+ * kept in a transposition table keyed by the packed GameState key; the best
+ * move stored there is tried first, followed by the other moves in order of
+ * how many winning lines pass through their cell (see BoardGeometry). The
+ * table is cleared whenever the player moves to a board of a different
+ * geometry, since keys from different geometries cannot be told apart.
+ *
+ * Scores are from the point of view of the player to move: a win is worth
+ * WIN_SCORE minus the number of moves on the board when it happens (so
+ * quicker wins and slower losses are preferred), and a draw is worth 0.
+ * Because the number of moves on the board is part of the position, the
+ * scores do not depend on the path taken and can be shared between
+ * transpositions. When the search depth is limited, unfinished positions
+ * at the horizon are scored as 0.
+ *
+ * When several moves are equally good, one is chosen at random, so that
+ * learners playing against it see some variety
+ * @author H Gulliver
+ *
+ */
+public class PerfectPlayer extends Player {
+	static final int WIN_SCORE = 1000;
+	private static final int INFINITY = WIN_SCORE + 1;
+	private static final int TABLE_BITS = 16;
+	// how many moves ahead to search
+	private final int maxDepth;
+	private transient TranspositionTable table;
+	// geometry of the positions in the table
+	private transient BoardGeometry tableGeometry;
+	// the copy of the board each search runs on, reused from move to move
+	private transient GameState searchState;
+
+	public PerfectPlayer(String id, int maxDepth) {
+		super(id);
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("The search depth must be at least 1");
+		}
+		this.maxDepth = maxDepth;
+	}
+
+	public PerfectPlayer(String id) {
+		// search to the end of the game, on any board
+		this(id, BoardGeometry.MAX_CELLS);
+	}
+
+	/**
+	 * a TranspositionTable stores the results of searches already done,
+	 * in parallel primitive arrays indexed by the hash of the state key.
+	 * A new entry always replaces an old one in the same slot
+	 * @author H Gulliver
+	 *
+	 */
+	private static class TranspositionTable {
+		static final byte EMPTY = 0, EXACT = 1, LOWER_BOUND = 2, UPPER_BOUND = 3;
+		final long[] keys;
+		final short[] scores;
+		final byte[] bounds;
+		final byte[] depths;
+		final byte[] bestCells;
+		final int mask;
+
+		TranspositionTable(int bits) {
+			int size = 1 << bits;
+			this.keys = new long[size];
+			this.scores = new short[size];
+			this.bounds = new byte[size];
+			this.depths = new byte[size];
+			this.bestCells = new byte[size];
+			this.mask = size - 1;
+		}
+
+		/**
+		 * finds the slot holding a state
+		 * @param key the packed key of the state
+		 * @return the slot index, or -1 if the state is not stored
+		 */
+		int find(long key) {
+			int slot = StateIndex.hash(key) & this.mask;
+			if (this.bounds[slot] != EMPTY && this.keys[slot] == key) {
+				return slot;
+			}
+			return -1;
+		}
+
+		/**
+		 * stores the result of a search
+		 * @param key      the packed key of the state searched
+		 * @param score    the score found
+		 * @param bound    EXACT, LOWER_BOUND or UPPER_BOUND
+		 * @param depth    the number of moves ahead searched
+		 * @param bestCell the best cell found, or -1 if none
+		 */
+		void store(long key, int score, byte bound, int depth, int bestCell) {
+			int slot = StateIndex.hash(key) & this.mask;
+			this.keys[slot] = key;
+			this.scores[slot] = (short) score;
+			this.bounds[slot] = bound;
+			this.depths[slot] = (byte) depth;
+			this.bestCells[slot] = (byte) bestCell;
+		}
+	}
+
+	/**
+	 * scores a finished game from the point of view of the player to move
+	 * (who did not make the last move, so cannot have won)
+	 * @param state a GameState whose result is not ' '
+	 * @return 0 for a draw, otherwise minus the value of the opponent's win
+	 */
+	private static int scoreResult(GameState state) {
+		if (state.getResult() == 'D') {
+			return 0;
+		}
+		return -(WIN_SCORE - state.turn);
+	}
+
+	/**
+	 * searches the game tree below a state with negamax and alpha-beta pruning
+	 * @param state the GameState to search from; moves are made and unmade on
+	 *              it, and it is left as it was found
+	 * @param depth the number of moves ahead still to search
+	 * @param alpha the score the player to move can already guarantee elsewhere
+	 * @param beta  the score the opponent can already hold the player to elsewhere
+	 * @return the score of the state for the player to move, exact if it lies
+	 *         strictly between alpha and beta, otherwise a bound on the
+	 *         same side of the window
+	 */
+	private int negamax(GameState state, int depth, int alpha, int beta) {
+		if (state.getResult() != ' ') {
+			return PerfectPlayer.scoreResult(state);
+		}
+		if (depth == 0) {
+			return 0;
+		}
+
+		long key = state.getKey();
+		int ttCell = -1;
+		int slot = this.table.find(key);
+		if (slot >= 0) {
+			ttCell = this.table.bestCells[slot];
+			if (this.table.depths[slot] >= depth) {
+				int score = this.table.scores[slot];
+				byte bound = this.table.bounds[slot];
+				if (bound == TranspositionTable.EXACT) {
+					return score;
+				} else if (bound == TranspositionTable.LOWER_BOUND) {
+					alpha = Math.max(alpha, score);
+				} else {
+					beta = Math.min(beta, score);
+				}
+				if (alpha >= beta) {
+					return score;
+				}
+			}
+		}
+
+		int originalAlpha = alpha;
+		char symbol = state.symbolToMove();
+		int bestScore = -INFINITY;
+		int bestCell = -1;
+		int emptyCells = state.getEmptyCells();
+		int[] moveOrder = state.geometry.moveOrder;
+		// try the move from the table first, then the rest in order
+		for (int i = -1; i < moveOrder.length; i++) {
+			int cell = (i < 0) ? ttCell : moveOrder[i];
+			if (cell < 0 || (emptyCells & (1 << cell)) == 0 || (i >= 0 && cell == ttCell)) {
+				continue;
+			}
+			state.makeMove(cell, symbol);
+			int score = -this.negamax(state, depth - 1, -beta, -alpha);
+			state.unmakeMove();
+			if (score > bestScore) {
+				bestScore = score;
+				bestCell = cell;
+			}
+			alpha = Math.max(alpha, score);
+			if (alpha >= beta) {
+				break;
+			}
+		}
+
+		byte bound;
+		if (bestScore <= originalAlpha) {
+			bound = TranspositionTable.UPPER_BOUND;
+		} else if (bestScore >= beta) {
+			bound = TranspositionTable.LOWER_BOUND;
+		} else {
+			bound = TranspositionTable.EXACT;
+		}
+		this.table.store(key, bestScore, bound, depth, bestCell);
+		return bestScore;
+	}
+
+	@Override
+	public Move getMove(Board board, boolean verbose) {
+		if (this.table == null || this.tableGeometry != board.board.geometry) {
+			this.table = new TranspositionTable(TABLE_BITS);
+			this.tableGeometry = board.board.geometry;
+		}
+		// search on a copy, so the real board is never touched
+		if (this.searchState == null) {
+			this.searchState = new GameState(board.board);
+		} else {
+			this.searchState.copyFrom(board.board);
+		}
+		GameState state = this.searchState;
+		char symbol = state.symbolToMove();
+		int emptyCells = state.getEmptyCells();
+
+		int bestScore = -INFINITY;
+		int numBest = 0;
+		int chosenCell = -1;
+		for (int cell : state.geometry.moveOrder) {
+			if ((emptyCells & (1 << cell)) == 0) {
+				continue;
+			}
+			state.makeMove(cell, symbol);
+			// searching with alpha just below the best so far means any
+			// move as good as the best gets an exact score
+			int score = -this.negamax(state, this.maxDepth - 1, -INFINITY, -(bestScore - 1));
+			state.unmakeMove();
+			if (verbose) {
+				Move move = state.getMove(cell);
+				System.out.println(String.format("%d%d %d", move.row, move.col, score));
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				numBest = 1;
+				chosenCell = cell;
+			} else if (score == bestScore) {
+				// choose uniformly between equally good moves (reservoir sampling)
+				numBest += 1;
+				if (this.random.nextInt(numBest) == 0) {
+					chosenCell = cell;
+				}
+			}
+		}
+		return state.getMove(chosenCell);
+	}
+
+	@Override
+	public void startGame() {
+		// pass
+	}
+
+	@Override
+	public int forfeit() {
+		this.numForfeits += 1;
+		this.numLosses += 1;
+		return this.numForfeits;
+	}
+
+	@Override
+	public int winForfeit() {
+		this.numWins += 1;
+		return this.numWins;
+	}
+
+	@Override
+	public int win(int playerNum) {
+		this.numWins += 1;
+		return this.numWins;
+	}
+
+	@Override
+	public int lose(int playerNum) {
+		this.numLosses += 1;
+		return this.numLosses;
+	}
+
+	@Override
+	public int draw(int playerNum) {
+		this.numDraws += 1;
+		return this.numDraws;
+	}
+}
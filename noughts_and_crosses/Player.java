@@ -1,12 +1,16 @@
 package noughts_and_crosses;
 import java.io.*;
+import java.util.SplittableRandom;
 
 /**
  * the Player abstract class adds an ID
  * and counters of past results to the
  * PlayerInterface. Although a player only
  * needs to implement the PlayerInterface,
- * it is best if it extends the Player class
+ * it is best if it extends the Player class.
+ * Each Player has its own random number generator, so that
+ * (given a seed) its choices are reproducible, and players on
+ * different threads never contend for a shared generator
  * @author H Gulliver
  *
  */
@@ -16,9 +20,40 @@ public abstract class Player implements PlayerInterface, Serializable {
 	public int numLosses = 0;
 	public int numForfeits = 0; // all forfeits are losses, so numForfeits <= numLosses always
 	public String playerID;
+	// SplittableRandom is not Serializable, so a deserialized Player
+	// gets a fresh, unseeded generator (see readObject)
+	protected transient SplittableRandom random;
 	
 	public Player(String id) {
 		this.playerID = id;
+		this.random = new SplittableRandom();
+	}
+	
+	/**
+	 * seeds this Player's random number generator, so that its
+	 * choices from now on are reproducible
+	 * @param seed a long, the seed
+	 */
+	public void setSeed(long seed) {
+		this.random = new SplittableRandom(seed);
+	}
+	
+	/**
+	 * gives this Player a random number generator to use, e.g.
+	 * one split from an experiment-wide generator
+	 * @param random the SplittableRandom this Player should use
+	 */
+	public void setRandom(SplittableRandom random) {
+		this.random = random;
+	}
+	
+	/**
+	 * restores the transient random number generator after deserializing
+	 * @param in the stream the Player is being read from
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.random = new SplittableRandom();
 	}
 	
 	/**
@@ -73,6 +108,23 @@ public abstract class Player implements PlayerInterface, Serializable {
 //	
 //	public abstract int draw();
 	
+	/**
+	 * takes back the count of the crosses seat's result, so that a
+	 * self-play game adds one to numWins, numDraws or numLosses in all
+	 * @param result the char representing the game result,
+	 *               'X' or 'O' for the winner, 'D' for a draw
+	 */
+	@Override
+	public void uncountSelfPlay(char result) {
+		if (result == 'O') {
+			this.numLosses -= 1;
+		} else if (result == 'X') {
+			this.numWins -= 1;
+		} else if (result == 'D') {
+			this.numDraws -= 1;
+		}
+	}
+	
 	public String getPlayerID() {
 		return this.playerID;
 	}
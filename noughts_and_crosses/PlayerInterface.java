@@ -79,5 +79,16 @@ public interface PlayerInterface {
 	 *         made so far 
 	 */
 	public int draw(int playerNum);
+	
+	/**
+	 * tells this player that it has just been told the result of
+	 * a self-play game from both seats, so that it can count the
+	 * game only once, from the point of view of noughts; by default
+	 * it does nothing
+	 * @param result the char representing the game result,
+	 *               'X' or 'O' for the winner, 'D' for a draw
+	 */
+	public default void uncountSelfPlay(char result) {
+	}
 
 }
@@ -1,6 +1,4 @@
 package noughts_and_crosses;
-import java.util.ArrayList;
-import java.util.ListIterator;
 //graphing packages
 import java.awt.*;  
 import javax.swing.*;  
@@ -9,7 +7,9 @@ import java.awt.geom.*;
 /**
  * A PlayerResults object stores the aggregated results of a game or series of games
  * for an object implementing PlayerInterface. It stores number of wins, losses,
- * and draws, but not game-level results. PlayerResults objects can be compared, where
+ * and draws, and the game-level results in a ResultSeries (two bits per game, with
+ * the totals and the results over a recent window kept up to date as games are
+ * added). PlayerResults objects can be compared, where
  * first they are compared by number of losses (fewer losses means greater Result), and
  * ties are resolved by number of wins (more wins means greater Result). The
  * comparison are done by raw numbers, not proportions, so two Results objects should
@@ -19,23 +19,49 @@ import java.awt.geom.*;
  */
 public class PlayerResults implements Comparable<PlayerResults> {
 	Player player;
-	int wins;
-	int draws;
-	int losses;
-	int total;
-	ArrayList<Character> results;
+	final ResultSeries results;
 	
 	public PlayerResults(Player player) {
 		this(player, 0, 0, 0);
 	}
 	
 	public PlayerResults(Player player, int wins, int draws, int losses) {
+		this(player, new ResultSeries());
+		// only the totals are known, not the games
+		this.results.count(wins, draws, losses);
+	}
+	
+	public PlayerResults(Player player, ResultSeries results) {
 		this.player = player;
-		this.wins = wins;
-		this.draws = draws;
-		this.losses = losses;
-		this.total = wins + draws + losses;
-		this.results = new ArrayList<Character>();
+		this.results = results;
+	}
+	
+	/**
+	 * @return an int, the number of games won
+	 */
+	public int getWins() {
+		return this.results.getCount(ResultSeries.WIN);
+	}
+	
+	/**
+	 * @return an int, the number of games drawn
+	 */
+	public int getDraws() {
+		return this.results.getCount(ResultSeries.DRAW);
+	}
+	
+	/**
+	 * @return an int, the number of games lost
+	 */
+	public int getLosses() {
+		return this.results.getCount(ResultSeries.LOSS);
+	}
+	
+	/**
+	 * @return an int, the total number of games
+	 */
+	public int getTotal() {
+		return this.results.getTotal();
 	}
 	
 	/**
@@ -45,18 +71,14 @@ public class PlayerResults implements Comparable<PlayerResults> {
 	 */
 	void addResult(char result) {
 		if (result == 'W') {
-			this.wins += 1;
-			this.results.add('W');
+			this.results.add(ResultSeries.WIN);
 		} else if (result == 'L') {
-			this.losses += 1;
-			this.results.add('L');
+			this.results.add(ResultSeries.LOSS);
 		} else if (result == 'D') {
-			this.draws += 1;
-			this.results.add('D');
+			this.results.add(ResultSeries.DRAW);
 		} else {
 			throw new IllegalArgumentException("result must be one of W, L, or D");
 		}
-		this.total += 1;
 	}
 
 	/**
@@ -67,18 +89,14 @@ public class PlayerResults implements Comparable<PlayerResults> {
 	 */
 	void addResultAsNoughts(char result) {
 		if (result == 'O') {
-			this.wins += 1;
-			this.results.add('W');
+			this.results.add(ResultSeries.WIN);
 		} else if (result == 'X') {
-			this.losses += 1;
-			this.results.add('L');
+			this.results.add(ResultSeries.LOSS);
 		} else if (result == 'D') {
-			this.draws += 1;
-			this.results.add('D');
+			this.results.add(ResultSeries.DRAW);
 		} else {
 			throw new IllegalArgumentException("result must be one of X, O, D");
 		}
-		this.total += 1;
 	}
 	
 	/**
@@ -89,26 +107,22 @@ public class PlayerResults implements Comparable<PlayerResults> {
 	 */
 	void addResultAsCrosses(char result) {
 		if (result == 'O') {
-			this.losses += 1;
-			this.results.add('L');
+			this.results.add(ResultSeries.LOSS);
 		} else if (result == 'X') {
-			this.wins += 1;
-			this.results.add('W');
+			this.results.add(ResultSeries.WIN);
 		} else if (result == 'D') {
-			this.draws += 1;
-			this.results.add('D');
+			this.results.add(ResultSeries.DRAW);
 		} else {
 			throw new IllegalArgumentException("result must be one of X, O, D");
 		}
-		this.total += 1;
 	}
 	
 	@Override
 	public int compareTo(PlayerResults that) {
-		if (this.losses == that.losses) {
-			return this.wins - that.wins;
+		if (this.getLosses() == that.getLosses()) {
+			return this.getWins() - that.getWins();
 		} else {
-			return that.losses - this.losses;
+			return that.getLosses() - this.getLosses();
 		}
 	}
 	
@@ -116,58 +130,18 @@ public class PlayerResults implements Comparable<PlayerResults> {
 	 * prints the number of wins, draws, and losses in this results object
 	 */
 	public void printResults() {
-		String results = String.format("Wins: %d, draws: %d, losses: %d", this.wins, this.draws, this.losses);
+		String results = String.format("Wins: %d, draws: %d, losses: %d", this.getWins(), this.getDraws(), this.getLosses());
 		System.out.println(results);
 	}
 	
 	public void add (PlayerResults that) {
 		if (this.player == that.player) {
-			this.wins += that.wins;
-			this.losses += that.losses;
-			this.draws += that.draws;
-			this.total = this.wins + this.losses + this.draws;
 			this.results.addAll(that.results);
 		} else {
 			throw new IllegalArgumentException("Cannot add PlayerResults for two separate players!");
 		}
 	}
 	
-	/**
-	 * finds the proportion of entries in an ArrayList of Characters up to each
-	 * index which are a particular char
-	 * @param list   an ArrayList<Character> in which we want to find the changing
-	 *               proportions of a given char
-	 * @param symbol the char whose proportions we want to study
-	 * @return an array of doubles, where index i records the proportion of entries
-	 *         of list up to and including the ith which are equal to symbol
-	 */
-	private double[] cumulativeProportion(ArrayList<Character> list, char symbol) {
-		int length = list.size();
-		System.out.println(length);
-		double[] cumProp = new double[length];
-		double count = 0.0;
-		ListIterator<Character> iterator = list.listIterator();
-		cumProp[0] = 0; // to avoid a 0/0 issue
-		for (int i = 1; i < length; i++) {
-			if (iterator.next() == symbol) {
-				count += 1.0;
-			}
-			cumProp[i] = count / (double) i;
-		}
-		return cumProp;
-	}
-	
-	/**
-	 * gives the proportion of wins/losses/draws after each game played
-	 * @param result a char; one of 'W', 'L', 'D'. The result whose
-	 *               proportions are to be returned
-	 * @return an array of doubles; the ith entry records the proportion
-	 *         of games ending in result up to and including the ith game
-	 */
-	private double[] cumulativeProportionResult(char result) {
-		return this.cumulativeProportion(this.results, result);
-	}
-	
 	/*
 	 * gives the running proportions of each result
 	 * @return a 2D array of doubles; each row is the running proportions
@@ -179,11 +153,8 @@ public class PlayerResults implements Comparable<PlayerResults> {
 	 *          {0, 0, 0, 1/4, 1/5, 1/6}}
 	 */
 	private double[][] cumulativeProportionAllResults() {
-		double[][] cumProps = new double[3][this.total];
-		char[] results = {'W', 'L', 'D'};
-		for (int i = 0; i < 3; i++) {
-			cumProps[i] = this.cumulativeProportionResult(results[i]);
-		}
+		double[][] byCode = this.results.cumulativeProportions();
+		double[][] cumProps = {byCode[ResultSeries.WIN - 1], byCode[ResultSeries.LOSS - 1], byCode[ResultSeries.DRAW - 1]};
 		return cumProps;
 	}
 
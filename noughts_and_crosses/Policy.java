@@ -0,0 +1,111 @@
+package noughts_and_crosses;
+import java.util.random.RandomGenerator;
+
+/**
+ * The Policy interface declares the methods a learning player
+ * needs from its store of move probabilities. A Policy gives each
+ * GameState it sees a dense integer index, and all other methods
+ * take that index rather than the GameState, so a player can look a
+ * state up once per move and remember the index for learning later.
+ * All the states of a Policy are on boards of the same BoardGeometry,
+ * fixed by the first state it sees.
+ * 
+ * The odds follow the same conventions as MoveSelector: each legal
+ * move has non-negative odds, moves are chosen with probability in
+ * proportion to their odds, and the odds of a state are never all zero
+ * @author H Gulliver
+ *
+ */
+public interface Policy extends java.io.Serializable {
+	
+	/**
+	 * finds the index of a GameState, adding it (with equal odds
+	 * for every legal move) if it has not been seen before
+	 * @param state the GameState to look up; it is not stored, so
+	 *              may be changed by the caller afterwards
+	 * @return an int, the index of the state in this Policy
+	 * @throws IllegalArgumentException if the state is on a board of
+	 *         another geometry from this Policy's earlier states
+	 */
+	public int findState(GameState state);
+	
+	/**
+	 * gives the geometry of the boards this Policy's states are on
+	 * @return the BoardGeometry of the first state seen, or null if none yet
+	 */
+	public BoardGeometry getGeometry();
+	
+	/**
+	 * gives the number of states this Policy has indexed
+	 * @return an int; indices run from 0 to this minus 1
+	 */
+	public int size();
+	
+	/**
+	 * gives the packed key (see GameState.getKey) of an indexed state
+	 * @param state the index of the state
+	 * @return a long, the key of the state
+	 */
+	public long getKey(int state);
+	
+	/**
+	 * writes the probability of choosing each move in a state into an
+	 * array indexed by cell; cells that are not legal are given 0
+	 * @param state         the index of the state
+	 * @param probabilities an array to fill, with at least one double per cell
+	 */
+	public void getProbabilities(int state, double[] probabilities);
+	
+	/**
+	 * chooses a legal move at random, according to the odds
+	 * @param state   the index of the current state
+	 * @param random  the random number generator to choose with
+	 * @param verbose a boolean; if true, prints the odds first
+	 * @return a Move object representing the chosen move
+	 */
+	public Move selectMove(int state, RandomGenerator random, boolean verbose);
+	
+	/**
+	 * multiplies the odds of a particular move by a given double
+	 * @param state      the index of the state the move was played in
+	 * @param move       the move whose odds are to be changed
+	 * @param multiplier a positive double to multiply the odds by
+	 */
+	public void multiplyOdds(int state, Move move, double multiplier);
+	
+	/**
+	 * multiplies the odds of every move in a trajectory in one pass,
+	 * e.g. at the end of a game. Move i of the trajectory is cells[i],
+	 * played in state states[i] on turn turns[i], and its odds are
+	 * multiplied by rewardCurve[turns[i]]. Any rescaling an implementation
+	 * needs is checked once per state, not once per multiplication
+	 * @param states      the index of the state of each move
+	 * @param cells       the cell index (see GameState.cellIndex) of each move
+	 * @param turns       the turn on which each move was played
+	 * @param rewardCurve the multiplier for a move played on each turn
+	 * @param length      the number of moves in the trajectory to use
+	 */
+	public void reinforce(int[] states, int[] cells, int[] turns, double[] rewardCurve, int length);
+	
+	/**
+	 * sets the odds of a move to 0, so the move cannot be played
+	 * (unless every move's odds become 0, when all are reset to equal)
+	 * @param state the index of the state the move was played in
+	 * @param move  the Move whose odds are to be set to 0
+	 */
+	public void zeroOdds(int state, Move move);
+	
+	/**
+	 * makes a particular move certain, so it will always be played
+	 * @param state the index of the state the move was played in
+	 * @param move  the Move to be made certain
+	 */
+	public void makeCertain(int state, Move move);
+	
+	/**
+	 * sets the odds of each move in a state to a random amount
+	 * @param state  the index of the state whose odds are randomised
+	 * @param random the random number generator to draw the odds from
+	 */
+	public void randomiseOdds(int state, RandomGenerator random);
+}
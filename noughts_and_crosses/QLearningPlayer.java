@@ -0,0 +1,214 @@
+package noughts_and_crosses;
+import java.util.Arrays;
+
+/**
+ * A QLearningPlayer learns by tabular Q-learning, a temporal-difference
+ * (TD(0)) method: it keeps an estimate Q(s, a) of the value of playing
+ * each move a in each state s it has seen, and updates the estimate for
+ * its previous move every time it is asked for a move, from the value of
+ * the best move in the state it now finds itself in. So, unlike a
+ * ReinforcementPlayer, it learns during the game rather than only at the
+ * end, which usually needs far fewer games to converge.
+ *
+ * Moves are chosen epsilon-greedily: with probability epsilon a legal move
+ * is chosen uniformly at random (to keep exploring), and otherwise the move
+ * with the highest Q value is played (ties broken at random).
+ *
+ * The values are kept like a DensePolicy's odds, laid out by a
+ * StateBlocks: states are given dense indices, and each state owns a
+ * contiguous block of one flat array of doubles, with one entry per legal
+ * move in order of cell. As with a DensePolicy, every state must be on the
+ * same BoardGeometry
+ * @author H Gulliver
+ *
+ */
+public class QLearningPlayer extends Player {
+	private static final int INITIAL_CAPACITY = 64;
+	static final double WIN_REWARD = 1.0, DRAW_REWARD = 0.0, LOSS_REWARD = -1.0;
+	// step size of each update
+	private final double learningRate;
+	// weight of the value of the next state relative to an immediate reward
+	private final double discount;
+	// probability of playing a random move
+	private double epsilon;
+	// index, legal cells and start in values of each state
+	private final StateBlocks blocks;
+	private double[] values;
+	// the entry in values of the last move played this game from each
+	// seat (both are used in self-play), or -1 if none
+	private final int[] pendingEntries = {-1, -1};
+	// the seat of the last move played, for forfeits
+	private int lastPlayerNum;
+
+	public QLearningPlayer(String id, double learningRate, double discount, double epsilon) {
+		super(id);
+		if (learningRate <= 0 | learningRate > 1) {
+			throw new IllegalArgumentException("The learning rate must be in (0, 1]");
+		}
+		if (discount < 0 | discount > 1) {
+			throw new IllegalArgumentException("The discount must be between 0 and 1");
+		}
+		this.learningRate = learningRate;
+		this.discount = discount;
+		this.setEpsilon(epsilon);
+		this.blocks = new StateBlocks();
+		this.values = new double[INITIAL_CAPACITY * BoardGeometry.STANDARD.numCells];
+	}
+
+	public QLearningPlayer(String id) {
+		this(id, 0.1, 0.9, 0.1);
+	}
+
+	/**
+	 * sets the probability of exploring with a random move; e.g.
+	 * set to 0 once training is over, to always play the best move
+	 * @param epsilon a double between 0 and 1
+	 */
+	public void setEpsilon(double epsilon) {
+		if (epsilon < 0 | epsilon > 1) {
+			throw new IllegalArgumentException("epsilon must be between 0 and 1");
+		}
+		this.epsilon = epsilon;
+	}
+
+	/**
+	 * finds the index of a GameState, adding it (with every
+	 * value 0) if it has not been seen before
+	 * @param state the GameState to look up
+	 * @return an int, the index of the state
+	 */
+	private int findState(GameState state) {
+		int index = this.blocks.findState(state);
+		// new values are left 0, so just make room for them
+		if (this.blocks.numEntries > this.values.length) {
+			this.values = Arrays.copyOf(this.values, 2 * this.values.length + this.blocks.getNumMoves(index));
+		}
+		return index;
+	}
+
+	/**
+	 * finds the highest value of any move in a state
+	 * @param state the index of the state
+	 * @return the largest Q value in the state's block
+	 */
+	private double findMaxValue(int state) {
+		int start = this.blocks.offsets[state];
+		int end = start + this.blocks.getNumMoves(state);
+		double maxValue = Double.NEGATIVE_INFINITY;
+		for (int entry = start; entry < end; entry++) {
+			maxValue = Math.max(maxValue, this.values[entry]);
+		}
+		return maxValue;
+	}
+
+	/**
+	 * moves the value of the last move played from a seat towards
+	 * a target, and forgets the move
+	 * @param playerNum the seat, 0 for noughts or 1 for crosses
+	 * @param target    the reward plus discounted value that followed the move
+	 */
+	private void updatePending(int playerNum, double target) {
+		int pendingEntry = this.pendingEntries[playerNum];
+		if (pendingEntry >= 0) {
+			double value = this.values[pendingEntry];
+			this.values[pendingEntry] = value + this.learningRate * (target - value);
+			this.pendingEntries[playerNum] = -1;
+		}
+	}
+
+	/**
+	 * chooses a move epsilon-greedily
+	 * @param state the index of the current state
+	 * @return the position of the chosen move in the state's block
+	 */
+	private int chooseEntry(int state) {
+		int numMoves = this.blocks.getNumMoves(state);
+		if (this.random.nextDouble() < this.epsilon) {
+			return this.random.nextInt(numMoves);
+		}
+		int start = this.blocks.offsets[state];
+		int bestEntry = 0;
+		int numBest = 0;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int entry = 0; entry < numMoves; entry++) {
+			double value = this.values[start + entry];
+			if (value > bestValue) {
+				bestValue = value;
+				bestEntry = entry;
+				numBest = 1;
+			} else if (value == bestValue) {
+				// choose uniformly between equally good moves (reservoir sampling)
+				numBest += 1;
+				if (this.random.nextInt(numBest) == 0) {
+					bestEntry = entry;
+				}
+			}
+		}
+		return bestEntry;
+	}
+
+	@Override
+	public Move getMove(Board board, boolean verbose) {
+		int state = this.findState(board.board);
+		int playerNum = board.board.turn % 2;
+		// the game has continued since the last move from this seat, so that
+		// move is worth (discounted) the best that can be done from here
+		this.updatePending(playerNum, this.discount * this.findMaxValue(state));
+
+		int entry = this.chooseEntry(state);
+		int legal = this.blocks.legalCells[state];
+		for (int i = 0; i < entry; i++) {
+			legal &= legal - 1; // clear lowest set bit
+		}
+		Move move = this.blocks.geometry.getMove(Integer.numberOfTrailingZeros(legal));
+		if (verbose) {
+			int start = this.blocks.offsets[state];
+			System.out.println(Arrays.toString(Arrays.copyOfRange(this.values, start, start + this.blocks.getNumMoves(state))));
+		}
+		this.pendingEntries[playerNum] = this.blocks.offsets[state] + entry;
+		this.lastPlayerNum = playerNum;
+		return move;
+	}
+
+	@Override
+	public void startGame() {
+		Arrays.fill(this.pendingEntries, -1);
+	}
+
+	@Override
+	public int forfeit() {
+		this.numForfeits += 1;
+		this.numLosses += 1;
+		this.updatePending(this.lastPlayerNum, LOSS_REWARD);
+		return this.numForfeits;
+	}
+
+	@Override
+	public int winForfeit() {
+		this.numWins += 1;
+		// if won by forfeit, nothing to learn, as the
+		// forfeit was down to the other player
+		return this.numWins;
+	}
+
+	@Override
+	public int win(int playerNum) {
+		this.numWins += 1;
+		this.updatePending(playerNum, WIN_REWARD);
+		return this.numWins;
+	}
+
+	@Override
+	public int lose(int playerNum) {
+		this.numLosses += 1;
+		this.updatePending(playerNum, LOSS_REWARD);
+		return this.numLosses;
+	}
+
+	@Override
+	public int draw(int playerNum) {
+		this.numDraws += 1;
+		this.updatePending(playerNum, DRAW_REWARD);
+		return this.numDraws;
+	}
+}
@@ -1,7 +1,5 @@
 package noughts_and_crosses;
 
-import java.util.HashMap;
-
 /**
  * A RandomPlayer is a Player that randomly chooses moves at each turn.
  * The first time it sees a particular GameState, it lists all legal moves
@@ -11,6 +9,9 @@ import java.util.HashMap;
  * can be assigned uniformly (so each legal move is equally likely), or at
  * random (so in each GameState it has a random but fixed probability
  * distribution of moves).
+ * The probabilities are kept in a Policy; by default a SelectorPolicy (one
+ * MoveSelector per GameState), but a more compact DensePolicy can be given
+ * instead.
  * It is mainly intended as a base class for various learning Player classes,
  * but is not an abstract class, to allow non-learning random players - this
  * can provide a baseline for the win/loss/draw rates expected of a random
@@ -19,15 +20,19 @@ import java.util.HashMap;
  *
  */
 public class RandomPlayer extends Player {
-	protected HashMap<GameState, MoveSelector> moveSelectors;
+	protected Policy policy;
 	boolean randomise;
 
-	public RandomPlayer(String id, boolean randomise) {
+	public RandomPlayer(String id, boolean randomise, Policy policy) {
 		super(id);
-		this.moveSelectors = new HashMap<GameState, MoveSelector>();
+		this.policy = policy;
 		this.randomise = randomise;
 	}
 	
+	public RandomPlayer(String id, boolean randomise) {
+		this(id, randomise, new SelectorPolicy());
+	}
+	
 	public RandomPlayer(String id) {
 		this(id, false);
 	}
@@ -39,46 +44,47 @@ public class RandomPlayer extends Player {
 	
 	@Override
 	public Move getMove(Board board, boolean verbose) {
-		GameState keyState = this.findKeyState(board);
-		MoveSelector selector = this.moveSelectors.get(keyState);
-		Move chosenMove = selector.selectMove(verbose);
+		int keyState = this.findKeyState(board);
+		Move chosenMove = this.policy.selectMove(keyState, this.random, verbose);
 		return chosenMove;
 	}
 
 	
 	/**
-	 * finds the previous GameState used as a key in this.moveSelectors
-	 * and matching the GameState of the Board, if such exists, or creates
-	 * a new entry in this.moveSelectors so that the current GameState is
-	 * the key. If this.randomise = true, the initial odds of each move
-	 * will be random; otherwise, they will be uniform
-	 * @param board     the Board whose GameState is to be compared with keys of
-	 *                  this.moveSelectors
-	 * @return a GameState which is a key in this.moveSelectors and
-	 *         matches currentState (represents the same game)
+	 * finds the index in this.policy of the GameState of the Board,
+	 * adding it to the policy if it is new. If this.randomise = true,
+	 * the initial odds of each move in a new state will be random;
+	 * otherwise, they will be uniform
+	 * @param board     the Board whose GameState is to be looked up
+	 * @return an int, the index of the matching state in this.policy
 	 */
-	protected GameState findKeyState(Board board) {
-		boolean hasSeenBefore = false;
-		// need to take a copy of the game state to avoid passing by reference
-		GameState keyState = new GameState(board.board);
-		for (GameState seenState : moveSelectors.keySet()) {
-			if (seenState.isEqual(board.board)) {
-				keyState = seenState;
-				hasSeenBefore = true;
-				break;
-			}
-		}
-		
-		if (!hasSeenBefore) {
-			MoveSelector selector = new MoveSelector(board);
-			if (this.randomise) {
-				selector.randomiseOdds();
-			}
-			this.moveSelectors.put(keyState, selector);
+	protected int findKeyState(Board board) {
+		int numStates = this.policy.size();
+		int keyState = this.policy.findState(board.board);
+		if (this.randomise && keyState == numStates) {
+			this.policy.randomiseOdds(keyState, this.random);
 		}
-		
 		return keyState;
 	}
+	
+	/**
+	 * writes the probability of this player choosing each move in an
+	 * indexed state into an array indexed by cell (e.g. for a CompiledPlayer)
+	 * @param state         the index of the state in this.policy
+	 * @param probabilities an array to fill, with at least one double per cell
+	 */
+	protected void getProbabilities(int state, double[] probabilities) {
+		this.policy.getProbabilities(state, probabilities);
+	}
+	
+	/**
+	 * tells whether the states in this.policy are canonical forms under
+	 * BoardSymmetry, rather than the boards actually played on
+	 * @return false, as a RandomPlayer looks up boards as they are
+	 */
+	protected boolean isSymmetrised() {
+		return false;
+	}
 
 	@Override
 	public int winForfeit() {
@@ -112,4 +118,4 @@ public class RandomPlayer extends Player {
 		this.numLosses += 1;
 		return this.numForfeits;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package noughts_and_crosses;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Ranking picks out the best few of a collection without sorting all of
+ * it: the best k items seen so far are kept in a binary heap with the worst
+ * of them at the root, so each further item costs at most one comparison
+ * with the root and (if it is better) log k more to replace it. Finding
+ * the top k of n items then takes O(n log k) time rather than O(n log n)
+ * @author H Gulliver
+ *
+ */
+public final class Ranking {
+
+	private Ranking() {
+		// static methods only
+	}
+
+	/**
+	 * finds the k best items, best first
+	 * @param items an array of the items to rank, which is not changed
+	 * @param k     an int, the number of items wanted; if more than the
+	 *              number of items, every item is ranked
+	 * @param order a Comparator under which better items are greater
+	 * @return an array of the k best items, in order of best first; items
+	 *         tied under the order may come in either order relative to
+	 *         each other
+	 */
+	public static <T> T[] selectTop(T[] items, int k, Comparator<? super T> order) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k cannot be negative");
+		}
+		k = Math.min(k, items.length);
+		// heap[0] is the worst of the best k so far
+		T[] heap = Arrays.copyOf(items, k);
+		if (k == 0) {
+			return heap;
+		}
+		for (int i = k / 2 - 1; i >= 0; i--) {
+			Ranking.siftDown(heap, i, k, order);
+		}
+		for (int i = k; i < items.length; i++) {
+			if (order.compare(items[i], heap[0]) > 0) {
+				heap[0] = items[i];
+				Ranking.siftDown(heap, 0, k, order);
+			}
+		}
+		// take the worst off the heap each time, filling the array from the back
+		for (int size = k - 1; size > 0; size--) {
+			T worst = heap[0];
+			heap[0] = heap[size];
+			heap[size] = worst;
+			Ranking.siftDown(heap, 0, size, order);
+		}
+		return heap;
+	}
+
+	/**
+	 * moves an item down a heap (worst at the root) until it is no better
+	 * than either of its children
+	 * @param heap     the array holding the heap
+	 * @param position the index of the item to move
+	 * @param size     the number of items in the heap
+	 * @param order    a Comparator under which better items are greater
+	 */
+	private static <T> void siftDown(T[] heap, int position, int size, Comparator<? super T> order) {
+		T item = heap[position];
+		while (2 * position + 1 < size) {
+			int child = 2 * position + 1;
+			if (child + 1 < size && order.compare(heap[child + 1], heap[child]) < 0) {
+				child += 1;
+			}
+			if (order.compare(heap[child], item) >= 0) {
+				break;
+			}
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = item;
+	}
+}
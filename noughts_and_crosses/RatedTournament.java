@@ -0,0 +1,325 @@
+package noughts_and_crosses;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A RatedTournament ranks a large population of players by Elo rating,
+ * playing Swiss rounds rather than a round-robin: in each round the
+ * players are ordered by their current ratings and paired off down the
+ * order, so each player meets an opponent of similar strength, and each
+ * pairing plays two games (one with each player as noughts). A round is
+ * then linear in the number of players, where a Tournament round is
+ * quadratic. A player is not paired with its opponent of the previous round
+ * if another is free; with an odd number of players, the lowest rated of
+ * those with the fewest byes sits the round out.
+ *
+ * Every player starts on INITIAL_RATING, and ratings are updated after each
+ * game by the Elo formula, in pairing order once the round is over, so a
+ * seeded RatedTournament is reproducible whether or not its rounds run in
+ * parallel (the pairings of a round have no players in common, so can be
+ * played on a ForkJoinPool together). Since ratings move only a little
+ * each round, the order from the previous round is re-sorted by insertion.
+ *
+ * Results are kept as running totals per player. The top k players by
+ * rating can be had without ranking the rest (see Ranking)
+ * @author H Gulliver
+ *
+ */
+public class RatedTournament {
+	static final double INITIAL_RATING = 1500.0;
+	// the most a rating can change in one game
+	static final double K_FACTOR = 24.0;
+	// rating difference at which the expected score is 10 to 1
+	private static final double RATING_SCALE = 400.0;
+	Player[] players;
+	int numRounds;
+	int numPlayers;
+	private final double[] ratings;
+	private final int[] wins;
+	private final int[] draws;
+	private final int[] losses;
+	// each player's opponent in the previous round, or -1 if none
+	private final int[] lastOpponents;
+	private final int[] numByes;
+	// player indices, highest rated first (as of the last pairing)
+	private final int[] order;
+	// the pool to play pairings on, or null to play them one at a time
+	private final ForkJoinPool pool;
+	// one Pairing per board, reused every round
+	private final List<Pairing> pairings;
+	private int numPairings;
+
+	public RatedTournament(Player[] players, int numRounds) {
+		this(players, numRounds, null, BoardGeometry.STANDARD);
+	}
+
+	public RatedTournament(Player[] players, int numRounds, long seed) {
+		this(Tournament.seedPlayers(players, new SplittableRandom(seed)), numRounds);
+	}
+
+	public RatedTournament(Player[] players, int numRounds, ForkJoinPool pool, BoardGeometry geometry, long seed) {
+		this(Tournament.seedPlayers(players, new SplittableRandom(seed)), numRounds, pool, geometry);
+	}
+
+	public RatedTournament(Player[] players, int numRounds, ForkJoinPool pool, BoardGeometry geometry) {
+		this.players = players;
+		this.numRounds = numRounds;
+		this.numPlayers = players.length;
+		this.pool = pool;
+		this.ratings = new double[this.numPlayers];
+		Arrays.fill(this.ratings, INITIAL_RATING);
+		this.wins = new int[this.numPlayers];
+		this.draws = new int[this.numPlayers];
+		this.losses = new int[this.numPlayers];
+		this.lastOpponents = new int[this.numPlayers];
+		Arrays.fill(this.lastOpponents, -1);
+		this.numByes = new int[this.numPlayers];
+		this.order = new int[this.numPlayers];
+		for (int player = 0; player < this.numPlayers; player++) {
+			this.order[player] = player;
+		}
+		this.pairings = new ArrayList<Pairing>(this.numPlayers / 2);
+		for (int pairing = 0; pairing < this.numPlayers / 2; pairing++) {
+			this.pairings.add(new Pairing(new Game(new Board(geometry))));
+		}
+		this.runTournament();
+	}
+
+	/**
+	 * runs numRounds Swiss rounds
+	 */
+	public void runTournament() {
+		for (int round = 0; round < this.numRounds; round++) {
+			this.pairPlayers();
+			this.playRound(round);
+		}
+	}
+
+	/**
+	 * sorts this.order by rating, highest first, by insertion; ties keep
+	 * their order from the previous round
+	 */
+	private void sortByRating() {
+		for (int i = 1; i < this.numPlayers; i++) {
+			int player = this.order[i];
+			double rating = this.ratings[player];
+			int j = i - 1;
+			while (j >= 0 && this.ratings[this.order[j]] < rating) {
+				this.order[j + 1] = this.order[j];
+				j -= 1;
+			}
+			this.order[j + 1] = player;
+		}
+	}
+
+	/**
+	 * pairs the players for the next round, down the rating order, filling
+	 * this.pairings (the first this.numPairings of them)
+	 */
+	private void pairPlayers() {
+		this.sortByRating();
+		boolean[] isPaired = new boolean[this.numPlayers];
+		if (this.numPlayers % 2 == 1) {
+			// the bye goes to the lowest rated of those with fewest byes
+			int bye = this.order[this.numPlayers - 1];
+			for (int i = this.numPlayers - 1; i >= 0; i--) {
+				if (this.numByes[this.order[i]] < this.numByes[bye]) {
+					bye = this.order[i];
+				}
+			}
+			this.numByes[bye] += 1;
+			this.lastOpponents[bye] = -1;
+			isPaired[bye] = true;
+		}
+		this.numPairings = 0;
+		for (int i = 0; i < this.numPlayers; i++) {
+			int first = this.order[i];
+			if (isPaired[first]) {
+				continue;
+			}
+			// the next free player, unless that is a rematch and there is another
+			int second = -1;
+			for (int j = i + 1; j < this.numPlayers; j++) {
+				int candidate = this.order[j];
+				if (isPaired[candidate]) {
+					continue;
+				}
+				if (second < 0) {
+					second = candidate;
+					if (candidate != this.lastOpponents[first]) {
+						break;
+					}
+				} else {
+					second = candidate;
+					break;
+				}
+			}
+			isPaired[first] = true;
+			isPaired[second] = true;
+			this.lastOpponents[first] = second;
+			this.lastOpponents[second] = first;
+			this.pairings.get(this.numPairings).setPlayers(first, second);
+			this.numPairings += 1;
+		}
+	}
+
+	/**
+	 * plays the pairings of a round, then updates the results and ratings
+	 * in pairing order
+	 * @param round an int, the index of the round
+	 */
+	private void playRound(int round) {
+		List<Pairing> roundPairings = this.pairings.subList(0, this.numPairings);
+		if (this.pool == null) {
+			for (Pairing pairing : roundPairings) {
+				pairing.call();
+			}
+		} else {
+			try {
+				for (Future<Void> result : this.pool.invokeAll(roundPairings)) {
+					result.get();
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				throw new IllegalStateException(String.format("Error in round %d", round), e);
+			}
+		}
+		for (Pairing pairing : roundPairings) {
+			this.recordGame(pairing.first, pairing.second, pairing.firstResult);
+			this.recordGame(pairing.second, pairing.first, pairing.secondResult);
+		}
+	}
+
+	/**
+	 * a Pairing is the two games between a pair of players in a round,
+	 * played on the same Game one after the other
+	 * @author H Gulliver
+	 *
+	 */
+	private class Pairing implements Callable<Void> {
+		final Game game;
+		int first;
+		int second;
+		// the result with first as noughts, then with second as noughts
+		char firstResult;
+		char secondResult;
+
+		Pairing(Game game) {
+			this.game = game;
+		}
+
+		void setPlayers(int first, int second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public Void call() {
+			Player[] players = RatedTournament.this.players;
+			this.game.reset(players[this.first], players[this.second]);
+			this.firstResult = this.game.runGame();
+			this.game.reset(players[this.second], players[this.first]);
+			this.secondResult = this.game.runGame();
+			return null;
+		}
+	}
+
+	/**
+	 * records the result of a game and updates both players' ratings
+	 * @param noughts an int, the index of the noughts player
+	 * @param crosses an int, the index of the crosses player
+	 * @param result  a char, 'O' if noughts won, 'X' if crosses won, 'D' if a draw
+	 */
+	void recordGame(int noughts, int crosses, char result) {
+		double score;
+		if (result == 'O') {
+			score = 1.0;
+			this.wins[noughts] += 1;
+			this.losses[crosses] += 1;
+		} else if (result == 'X') {
+			score = 0.0;
+			this.losses[noughts] += 1;
+			this.wins[crosses] += 1;
+		} else if (result == 'D') {
+			score = 0.5;
+			this.draws[noughts] += 1;
+			this.draws[crosses] += 1;
+		} else {
+			throw new IllegalArgumentException("result must be one of X, O, D");
+		}
+		double expected = RatedTournament.expectedScore(this.ratings[noughts], this.ratings[crosses]);
+		double change = K_FACTOR * (score - expected);
+		this.ratings[noughts] += change;
+		this.ratings[crosses] -= change;
+	}
+
+	/**
+	 * gives the expected score of one player against another under Elo
+	 * @param rating         the rating of the player
+	 * @param opponentRating the rating of the opponent
+	 * @return a double between 0 and 1 (a win scoring 1 and a draw 0.5)
+	 */
+	static double expectedScore(double rating, double opponentRating) {
+		return 1.0 / (1.0 + Math.pow(10.0, (opponentRating - rating) / RATING_SCALE));
+	}
+
+	/**
+	 * gives the current rating of a player
+	 * @param playerNumber an int, the index of the player
+	 * @return a double, the player's Elo rating
+	 */
+	public double getRating(int playerNumber) {
+		return this.ratings[playerNumber];
+	}
+
+	/**
+	 * gets the results of a particular player in the tournament
+	 * @param playerNumber an int, the index of the player whose results should be given
+	 * @return a PlayerResults object with the player's total wins, draws and losses
+	 */
+	public PlayerResults reportPlayerResults(int playerNumber) {
+		Player player = this.players[playerNumber];
+		return new PlayerResults(player, this.wins[playerNumber], this.draws[playerNumber], this.losses[playerNumber]);
+	}
+
+	/**
+	 * finds the k highest rated players, without ranking the rest
+	 * @param k an int, the number of players wanted
+	 * @return an array of the indices of the k highest rated players (or
+	 *         every player, if fewer), highest rated first
+	 */
+	public int[] getTopRated(int k) {
+		Integer[] playerNumbers = new Integer[this.numPlayers];
+		for (int player = 0; player < this.numPlayers; player++) {
+			playerNumbers[player] = player;
+		}
+		Comparator<Integer> order = Comparator.comparingDouble(player -> this.ratings[player]);
+		Integer[] top = Ranking.selectTop(playerNumbers, k, order);
+		int[] topRated = new int[top.length];
+		for (int rank = 0; rank < top.length; rank++) {
+			topRated[rank] = top[rank];
+		}
+		return topRated;
+	}
+
+	/**
+	 * ranks the k highest rated players
+	 * @param k an int, the number of players wanted
+	 * @return an array of PlayerResults for the k highest rated players
+	 *         (or every player, if fewer), highest rated first
+	 */
+	public PlayerResults[] getRankedResults(int k) {
+		int[] topRated = this.getTopRated(k);
+		PlayerResults[] results = new PlayerResults[topRated.length];
+		for (int rank = 0; rank < topRated.length; rank++) {
+			results[rank] = this.reportPlayerResults(topRated[rank]);
+		}
+		return results;
+	}
+}
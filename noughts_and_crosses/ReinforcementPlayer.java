@@ -1,83 +1,116 @@
 package noughts_and_crosses;
-import java.util.ArrayList;
 
 public class ReinforcementPlayer extends RandomPlayer {
 	// for tracking current game, for learning at the end
 	protected double learningRate;
-	ArrayList<MovePlayed> movesPlayed;
+	// multipliers for each turn, shared between players with the same rate
+	protected final RewardCurve rewards;
+	// the moves played this game, from either seat, in order; a game
+	// fills each cell at most once, so these never need to grow
+	private final int[] movesPlayedStates = new int[BoardGeometry.MAX_CELLS];
+	private final int[] movesPlayedCells = new int[BoardGeometry.MAX_CELLS];
+	private final int[] movesPlayedTurns = new int[BoardGeometry.MAX_CELLS];
+	private int numMovesPlayed;
+	// the moves played from one seat, unpacked for Policy.reinforce
+	private final int[] trajectoryStates = new int[BoardGeometry.MAX_CELLS];
+	private final int[] trajectoryCells = new int[BoardGeometry.MAX_CELLS];
+	private final int[] trajectoryTurns = new int[BoardGeometry.MAX_CELLS];
 	
 	public ReinforcementPlayer(String id) {
 		this(id, 1.05);
 	}
 	
 	public ReinforcementPlayer(String id, double rate) {
-		super(id);
+		this(id, rate, new SelectorPolicy());
+	}
+	
+	public ReinforcementPlayer(String id, double rate, Policy policy) {
+		super(id, false, policy);
 		this.learningRate = rate;
+		this.rewards = RewardCurve.forRate(rate);
 	}
 	
 	@Override
 	public void startGame() {
-		this.movesPlayed = new ArrayList<MovePlayed>();
-	}
-
-	private class MovePlayed implements java.io.Serializable {
-		final GameState state;
-		final Move move;
-		
-		private MovePlayed(GameState state, Move move) {
-			this.state = state;
-			this.move = move;
-		}
+		this.numMovesPlayed = 0;
 	}
 	
 	@Override
 	public Move getMove(Board board, boolean verbose) {
-		GameState keyState = this.findKeyState(board);
-		Move chosenMove = super.getMove(board, verbose);
-		MovePlayed movePlayed = new MovePlayed(keyState, chosenMove);
-		this.movesPlayed.add(movePlayed);
+		int keyState = this.findKeyState(board);
+		Move chosenMove = this.policy.selectMove(keyState, this.random, verbose);
+		this.movesPlayedStates[this.numMovesPlayed] = keyState;
+		this.movesPlayedCells[this.numMovesPlayed] = board.board.cellIndex(chosenMove.row, chosenMove.col);
+		this.movesPlayedTurns[this.numMovesPlayed] = board.board.turn;
+		this.numMovesPlayed += 1;
 		return chosenMove;
 	}
 	
+	/**
+	 * unpacks the moves played from one seat this game into the trajectory
+	 * arrays, in order; in self-play the player has moves from both seats
+	 * @param playerNum the seat, 0 for noughts or 1 for crosses
+	 * @return the number of moves played from that seat
+	 */
+	private int collectMoves(int playerNum) {
+		int numMoves = 0;
+		for (int i = 0; i < this.numMovesPlayed; i++) {
+			if (this.movesPlayedTurns[i] % 2 != playerNum) {
+				continue;
+			}
+			this.trajectoryStates[numMoves] = this.movesPlayedStates[i];
+			this.trajectoryCells[numMoves] = this.movesPlayedCells[i];
+			this.trajectoryTurns[numMoves] = this.movesPlayedTurns[i];
+			numMoves += 1;
+		}
+		return numMoves;
+	}
+	
+	/**
+	 * hands the first moves played from one seat this game to the policy in
+	 * one batch, with each move's odds multiplied by the reward for its turn
+	 * @param rewardCurve the multiplier for a move played on each turn
+	 * @param numMoves    the number of collected moves (from the start) to reward
+	 */
+	private void reinforceMoves(double[] rewardCurve, int numMoves) {
+		this.policy.reinforce(this.trajectoryStates, this.trajectoryCells, this.trajectoryTurns, rewardCurve, numMoves);
+	}
+	
 	@Override
  	public int forfeit() {
 		this.numForfeits += 1;
-		int numMovesPlayed = this.movesPlayed.size();
-		MovePlayed lastMove = this.movesPlayed.get(numMovesPlayed - 1);
-		MoveSelector selector = this.moveSelectors.get(lastMove.state);
-		selector.zeroOdds(lastMove.move);
+		// the forfeited move is the last one asked for, whichever seat it was from
+		int lastMove = this.numMovesPlayed - 1;
+		Move move = this.policy.getGeometry().getMove(this.movesPlayedCells[lastMove]);
+		this.policy.zeroOdds(this.movesPlayedStates[lastMove], move);
 		return numForfeits;
 	}
 
 	@Override
 	public int win(int playerNum) {
 		this.numWins += 1;
-		int numMovesPlayed = this.movesPlayed.size();
-		for (int moveNum = 0; moveNum < numMovesPlayed - 1; moveNum++) {
-			MovePlayed movePlayed = this.movesPlayed.get(moveNum);
-			double reward = Math.pow(this.learningRate, movePlayed.state.turn + 1);
-			MoveSelector selector = this.moveSelectors.get(movePlayed.state);
-			selector.multiplyOdds(movePlayed.move, reward);
+		int numMovesPlayed = this.collectMoves(playerNum);
+		if (numMovesPlayed == 0) {
+			// can only happen on a board won in one move, by noughts
+			return numWins;
 		}
-		MovePlayed lastMove = this.movesPlayed.get(numMovesPlayed - 1);
-		MoveSelector selector = this.moveSelectors.get(lastMove.state);
-		selector.makeCertain(lastMove.move);
+		this.reinforceMoves(this.rewards.winRewards, numMovesPlayed - 1);
+		int lastState = this.trajectoryStates[numMovesPlayed - 1];
+		this.policy.makeCertain(lastState, this.policy.getGeometry().getMove(this.trajectoryCells[numMovesPlayed - 1]));
 		return numWins;
 	}
 
 	@Override
 	public int lose(int playerNum) {
 		this.numLosses += 1;
-		int numMovesPlayed = this.movesPlayed.size();
-		for (int moveNum = 0; moveNum < numMovesPlayed - 1; moveNum++) {
-			MovePlayed movePlayed = this.movesPlayed.get(moveNum);
-			double reward = Math.pow(this.learningRate, -(movePlayed.state.turn + 1));
-			MoveSelector selector = this.moveSelectors.get(movePlayed.state);
-			selector.multiplyOdds(movePlayed.move, reward);
+		int numMovesPlayed = this.collectMoves(playerNum);
+		if (numMovesPlayed == 0) {
+			// crosses lost before its first move, so there is nothing to learn
+			return numLosses;
 		}
-		MovePlayed lastMove = this.movesPlayed.get(numMovesPlayed - 1);
-		MoveSelector selector = this.moveSelectors.get(lastMove.state);
-		selector.zeroOdds(lastMove.move);
+		this.reinforceMoves(this.rewards.lossRewards, numMovesPlayed - 1);
+		int lastState = this.trajectoryStates[numMovesPlayed - 1];
+		this.policy.zeroOdds(lastState, this.policy.getGeometry().getMove(this.trajectoryCells[numMovesPlayed - 1]));
 		return numLosses;
 	}
 	
@@ -87,11 +120,7 @@ public class ReinforcementPlayer extends RandomPlayer {
 		// if crosses player, draw is the best you can expect, so reward slightly
 		if (playerNum == 1) {
 			// draws are rewarded at an intermediate rate
-			double reducedRate = ((this.learningRate - 1) / 2) + 1;
-			for (MovePlayed movePlayed : this.movesPlayed) {
-				MoveSelector selector = this.moveSelectors.get(movePlayed.state);
-				selector.multiplyOdds(movePlayed.move, reducedRate);
-			}
+			this.reinforceMoves(this.rewards.drawRewards, this.collectMoves(playerNum));
 		}
 		// do not reward or penalise draws for noughts player
 		return numDraws;
@@ -0,0 +1,200 @@
+package noughts_and_crosses;
+import java.util.Arrays;
+
+/**
+ * A ResultSeries records a sequence of game results (win, draw, or loss)
+ * from one player's point of view, two bits per game packed into longs.
+ * The buffer grows as games are added, up to a maximum number of games;
+ * after that it becomes a ring, and the oldest games are overwritten. So
+ * the series is either complete or holds the most recent maxGames games.
+ *
+ * The total of each result, over every game ever added, is kept as each
+ * game is added, as is the total of each result over the last window
+ * games, so neither needs a pass over the series. Results can also be
+ * counted without being added to the series at all (e.g. when only totals
+ * are known); these count towards the totals, as if played before the
+ * games held in the series
+ * @author H Gulliver
+ *
+ */
+public class ResultSeries {
+	static final byte WIN = 1, DRAW = 2, LOSS = 3;
+	private static final int BITS_PER_GAME = 2;
+	private static final int GAMES_PER_LONG = Long.SIZE / BITS_PER_GAME;
+	private static final int INITIAL_CAPACITY = 64;
+	// keep every game, up to the most that fit in one array
+	private static final int UNLIMITED = 1 << 30;
+	private static final int DEFAULT_WINDOW = 100;
+	// most games held in the buffer; a power of 2
+	private final int maxGames;
+	// number of most recent games the windowed totals cover
+	private final int window;
+	private long[] codes;
+	// number of games the buffer can hold at present; a power of 2
+	private int capacity;
+	// number of games added to the series (not just counted)
+	private long size;
+	// totals of each result, indexed by code
+	private final int[] counts;
+	private final int[] windowCounts;
+
+	public ResultSeries() {
+		this(DEFAULT_WINDOW, UNLIMITED);
+	}
+
+	public ResultSeries(int window, int maxGames) {
+		if (maxGames < 1 || maxGames > UNLIMITED) {
+			throw new IllegalArgumentException("maxGames must be between 1 and 2^30");
+		}
+		// round up to a power of 2
+		this.maxGames = (maxGames == 1) ? 1 : Integer.highestOneBit(maxGames - 1) << 1;
+		if (window < 1 || window > this.maxGames) {
+			throw new IllegalArgumentException("The window must be between 1 and the number of games kept");
+		}
+		this.window = window;
+		this.capacity = Math.min(INITIAL_CAPACITY, this.maxGames);
+		this.codes = new long[(this.capacity + GAMES_PER_LONG - 1) / GAMES_PER_LONG];
+		this.size = 0;
+		this.counts = new int[4];
+		this.windowCounts = new int[4];
+	}
+
+	/**
+	 * reads the code of a game held in the buffer
+	 * @param game a long, the number of the game in the series (from 0)
+	 * @return a byte, WIN, DRAW, or LOSS
+	 */
+	private byte getCode(long game) {
+		int position = (int) (game & (this.capacity - 1));
+		long word = this.codes[position / GAMES_PER_LONG];
+		return (byte) ((word >>> ((position % GAMES_PER_LONG) * BITS_PER_GAME)) & 3);
+	}
+
+	/**
+	 * adds a game onto the end of the series
+	 * @param code a byte, WIN, DRAW, or LOSS
+	 */
+	void add(byte code) {
+		if (code < WIN || code > LOSS) {
+			throw new IllegalArgumentException("code must be one of WIN, DRAW, or LOSS");
+		}
+		if (this.size == this.capacity && this.capacity < this.maxGames) {
+			// the buffer has not wrapped yet, so every game stays where it is
+			this.capacity *= 2;
+			this.codes = Arrays.copyOf(this.codes, (this.capacity + GAMES_PER_LONG - 1) / GAMES_PER_LONG);
+		}
+		if (this.size >= this.window) {
+			// the window never outgrows the buffer, so this game is still held
+			this.windowCounts[this.getCode(this.size - this.window)] -= 1;
+		}
+		int position = (int) (this.size & (this.capacity - 1));
+		int shift = (position % GAMES_PER_LONG) * BITS_PER_GAME;
+		long word = this.codes[position / GAMES_PER_LONG];
+		this.codes[position / GAMES_PER_LONG] = (word & ~(3L << shift)) | ((long) code << shift);
+		this.counts[code] += 1;
+		this.windowCounts[code] += 1;
+		this.size += 1;
+	}
+
+	/**
+	 * counts results towards the totals without adding them to the series
+	 * @param wins   an int, the number of wins to count
+	 * @param draws  an int, the number of draws to count
+	 * @param losses an int, the number of losses to count
+	 */
+	void count(int wins, int draws, int losses) {
+		this.counts[WIN] += wins;
+		this.counts[DRAW] += draws;
+		this.counts[LOSS] += losses;
+	}
+
+	/**
+	 * adds every game of another series onto the end of this one; games
+	 * the other series only counted, or no longer holds, are counted here
+	 * @param that the ResultSeries to add; may be this series, whose games
+	 *             are then copied before adding
+	 */
+	void addAll(ResultSeries that) {
+		if (that == this) {
+			// adding grows (and may overwrite) the series being read
+			ResultSeries copy = new ResultSeries(this.window, this.maxGames);
+			copy.addAll(this);
+			that = copy;
+		}
+		long first = that.getFirstHeld();
+		int[] held = new int[4];
+		for (long game = first; game < that.size; game++) {
+			held[that.getCode(game)] += 1;
+		}
+		this.count(that.counts[WIN] - held[WIN], that.counts[DRAW] - held[DRAW], that.counts[LOSS] - held[LOSS]);
+		for (long game = first; game < that.size; game++) {
+			this.add(that.getCode(game));
+		}
+	}
+
+	/**
+	 * gives the number of the oldest game still held in the buffer
+	 * @return a long, 0 unless the buffer has wrapped
+	 */
+	private long getFirstHeld() {
+		return Math.max(0, this.size - this.capacity);
+	}
+
+	/**
+	 * gives the total number of a result, over every game added or counted
+	 * @param code a byte, WIN, DRAW, or LOSS
+	 * @return an int, the number of games with that result
+	 */
+	public int getCount(byte code) {
+		return this.counts[code];
+	}
+
+	/**
+	 * gives the total number of games added or counted
+	 * @return an int, the number of games
+	 */
+	public int getTotal() {
+		return this.counts[WIN] + this.counts[DRAW] + this.counts[LOSS];
+	}
+
+	/**
+	 * gives the proportion of the most recent games with a given result
+	 * @param code a byte, WIN, DRAW, or LOSS
+	 * @return a double, the proportion of the last window games added (or
+	 *         of all the games added, if fewer) with that result; 0 if none
+	 */
+	public double getWindowProportion(byte code) {
+		long numGames = Math.min(this.size, this.window);
+		if (numGames == 0) {
+			return 0.0;
+		}
+		return (double) this.windowCounts[code] / numGames;
+	}
+
+	/**
+	 * gives the running proportions of each result over the games held,
+	 * allowing for all the games before them
+	 * @return a 2D array of doubles; row i is the proportion of games with
+	 *         result code i + 1 (so the rows are win, draw, loss) up to and
+	 *         including each game held
+	 */
+	public double[][] cumulativeProportions() {
+		long first = this.getFirstHeld();
+		int numHeld = (int) (this.size - first);
+		double[][] proportions = new double[3][numHeld];
+		// totals over everything before the first game held
+		int[] running = this.counts.clone();
+		for (long game = first; game < this.size; game++) {
+			running[this.getCode(game)] -= 1;
+		}
+		int numGames = running[WIN] + running[DRAW] + running[LOSS];
+		for (int i = 0; i < numHeld; i++) {
+			running[this.getCode(first + i)] += 1;
+			numGames += 1;
+			for (int code = WIN; code <= LOSS; code++) {
+				proportions[code - 1][i] = (double) running[code] / numGames;
+			}
+		}
+		return proportions;
+	}
+}
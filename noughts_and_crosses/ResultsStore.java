@@ -0,0 +1,236 @@
+package noughts_and_crosses;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * A ResultsStore records the result of every game of a Tournament in two
+ * bits: games are numbered round by round, each round holding one game for
+ * every ordered pair of distinct players, and the results are packed 32 to
+ * a long in chunks of CHUNK_LONGS longs, allocated as the rounds come in.
+ * Alongside, it keeps running totals of each player's wins, draws and
+ * losses, updated as each result is recorded, so these can be had without
+ * walking the games.
+ *
+ * A game that has not been recorded reads back as ' '
+ * @author H Gulliver
+ *
+ */
+public class ResultsStore {
+	private static final int BITS_PER_GAME = 2;
+	private static final int GAMES_PER_LONG = Long.SIZE / BITS_PER_GAME;
+	private static final int CHUNK_LONGS = 1024;
+	private static final int GAMES_PER_CHUNK = GAMES_PER_LONG * CHUNK_LONGS;
+	// the result each two-bit code stands for
+	private static final char[] RESULTS = {' ', 'O', 'X', 'D'};
+	private final int numPlayers;
+	private final int gamesPerRound;
+	private final ArrayList<long[]> chunks;
+	private int numRounds;
+	private final int[] wins;
+	private final int[] draws;
+	private final int[] losses;
+
+	public ResultsStore(int numPlayers) {
+		this.numPlayers = numPlayers;
+		this.gamesPerRound = numPlayers * (numPlayers - 1);
+		this.chunks = new ArrayList<long[]>();
+		this.numRounds = 0;
+		this.wins = new int[numPlayers];
+		this.draws = new int[numPlayers];
+		this.losses = new int[numPlayers];
+	}
+
+	/**
+	 * finds the number of a game
+	 * @param round   an int, the index of the round
+	 * @param noughts an int, the index of the noughts player
+	 * @param crosses an int, the index of the crosses player; not noughts
+	 * @return a long, the position of the game in the store
+	 */
+	private long gameNumber(int round, int noughts, int crosses) {
+		if (noughts == crosses) {
+			throw new IllegalArgumentException("Players cannot play against themselves");
+		}
+		// skip the missing game of each player against itself
+		int opponent = (crosses < noughts) ? crosses : crosses - 1;
+		return (long) round * this.gamesPerRound + noughts * (this.numPlayers - 1) + opponent;
+	}
+
+	/**
+	 * converts a result to its two-bit code
+	 * @param result a char, 'O', 'X', or 'D'
+	 * @return an int, the code of the result
+	 */
+	static int encode(char result) {
+		if (result == 'O') {
+			return 1;
+		} else if (result == 'X') {
+			return 2;
+		} else if (result == 'D') {
+			return 3;
+		} else {
+			throw new IllegalArgumentException("result must be one of X, O, D");
+		}
+	}
+
+	/**
+	 * converts a two-bit code back to its result
+	 * @param code an int, the code of the result
+	 * @return a char, 'O', 'X', or 'D', or ' ' for code 0
+	 */
+	static char decode(int code) {
+		return RESULTS[code & 3];
+	}
+
+	/**
+	 * adds to (or takes away from) the running totals of a game's players
+	 * @param noughts an int, the index of the noughts player
+	 * @param crosses an int, the index of the crosses player
+	 * @param code    the two-bit code of the result; 0 changes nothing
+	 * @param change  1 to count the result, -1 to uncount it
+	 */
+	private void count(int noughts, int crosses, int code, int change) {
+		char result = RESULTS[code];
+		if (result == 'O') {
+			this.wins[noughts] += change;
+			this.losses[crosses] += change;
+		} else if (result == 'X') {
+			this.losses[noughts] += change;
+			this.wins[crosses] += change;
+		} else if (result == 'D') {
+			this.draws[noughts] += change;
+			this.draws[crosses] += change;
+		}
+	}
+
+	/**
+	 * records the result of a single game, replacing any result
+	 * already recorded for it
+	 * @param round   an int, the index of the round
+	 * @param noughts an int, the index of the noughts player
+	 * @param crosses an int, the index of the crosses player
+	 * @param result  a char, 'O' if noughts won, 'X' if crosses
+	 *                won, 'D' if a draw
+	 */
+	public void recordResult(int round, int noughts, int crosses, char result) {
+		int code = ResultsStore.encode(result);
+		long game = this.gameNumber(round, noughts, crosses);
+		int chunk = (int) (game / GAMES_PER_CHUNK);
+		while (this.chunks.size() <= chunk) {
+			this.chunks.add(new long[CHUNK_LONGS]);
+		}
+		long[] longs = this.chunks.get(chunk);
+		int position = (int) (game % GAMES_PER_CHUNK);
+		int shift = (position % GAMES_PER_LONG) * BITS_PER_GAME;
+		long word = longs[position / GAMES_PER_LONG];
+		this.count(noughts, crosses, (int) (word >>> shift) & 3, -1);
+		longs[position / GAMES_PER_LONG] = (word & ~(3L << shift)) | ((long) code << shift);
+		this.count(noughts, crosses, code, 1);
+		this.numRounds = Math.max(this.numRounds, round + 1);
+	}
+
+	/**
+	 * gets the result of a single game
+	 * @param round   an int, the index of the round
+	 * @param noughts an int, the index of the noughts player
+	 * @param crosses an int, the index of the crosses player
+	 * @return a char, 'O', 'X', or 'D', or ' ' if the game is not recorded
+	 */
+	public char getResult(int round, int noughts, int crosses) {
+		long game = this.gameNumber(round, noughts, crosses);
+		int chunk = (int) (game / GAMES_PER_CHUNK);
+		if (chunk >= this.chunks.size()) {
+			return ' ';
+		}
+		int position = (int) (game % GAMES_PER_CHUNK);
+		long word = this.chunks.get(chunk)[position / GAMES_PER_LONG];
+		return ResultsStore.decode((int) (word >>> ((position % GAMES_PER_LONG) * BITS_PER_GAME)));
+	}
+
+	/**
+	 * gives the number of rounds with any results recorded
+	 * @return an int, one more than the highest round recorded
+	 */
+	public int getNumRounds() {
+		return this.numRounds;
+	}
+
+	/**
+	 * gives the running total of a player's wins
+	 * @param player an int, the index of the player
+	 * @return an int, the number of games recorded as won for the player
+	 */
+	public int getWins(int player) {
+		return this.wins[player];
+	}
+
+	/**
+	 * gives the running total of a player's draws
+	 * @param player an int, the index of the player
+	 * @return an int, the number of games recorded as drawn for the player
+	 */
+	public int getDraws(int player) {
+		return this.draws[player];
+	}
+
+	/**
+	 * gives the running total of a player's losses
+	 * @param player an int, the index of the player
+	 * @return an int, the number of games recorded as lost for the player
+	 */
+	public int getLosses(int player) {
+		return this.losses[player];
+	}
+
+	/**
+	 * gets every recorded result of a particular player, round by round,
+	 * and within each round opponent by opponent (as noughts, then crosses)
+	 * @param player       the Player whose results are wanted
+	 * @param playerNumber an int, the index of that player
+	 * @return a PlayerResults object recording the player's results
+	 */
+	public PlayerResults reportPlayerResults(Player player, int playerNumber) {
+		PlayerResults results = new PlayerResults(player);
+		for (int round = 0; round < this.numRounds; round++) {
+			for (int opponent = 0; opponent < this.numPlayers; opponent++) {
+				if (opponent == playerNumber) {
+					continue;
+				}
+				char noughtsResult = this.getResult(round, playerNumber, opponent);
+				if (noughtsResult != ' ') {
+					results.addResultAsNoughts(noughtsResult);
+				}
+				char crossesResult = this.getResult(round, opponent, playerNumber);
+				if (crossesResult != ' ') {
+					results.addResultAsCrosses(crossesResult);
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * finds the top k players, ranked as PlayerResults are (fewest losses
+	 * first, ties resolved by most wins), without ranking the rest: players
+	 * are compared on the running totals, and a PlayerResults is only built
+	 * for the top k
+	 * @param players the players, in order of index
+	 * @param k       an int, the number of players wanted
+	 * @return an array of PlayerResults for the k highest ranked players
+	 *         (or every player, if fewer), highest ranked first
+	 */
+	public PlayerResults[] getRankedResults(Player[] players, int k) {
+		Integer[] playerNumbers = new Integer[this.numPlayers];
+		for (int player = 0; player < this.numPlayers; player++) {
+			playerNumbers[player] = player;
+		}
+		Comparator<Integer> order = Comparator.comparingInt((Integer player) -> -this.losses[player])
+				.thenComparingInt(player -> this.wins[player]);
+		Integer[] top = Ranking.selectTop(playerNumbers, k, order);
+		PlayerResults[] results = new PlayerResults[top.length];
+		for (int rank = 0; rank < top.length; rank++) {
+			results[rank] = this.reportPlayerResults(players[top[rank]], top[rank]);
+		}
+		return results;
+	}
+}
@@ -0,0 +1,45 @@
+package noughts_and_crosses;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A RewardCurve holds the multipliers a ReinforcementPlayer applies to
+ * the odds of its moves at the end of a game, indexed by the turn on
+ * which each move was played. They depend only on the learning rate, so
+ * are computed once per rate and shared by every player using that rate,
+ * rather than calling Math.pow for every move of every game
+ * @author H Gulliver
+ *
+ */
+final class RewardCurve implements java.io.Serializable {
+	private static final ConcurrentHashMap<Double, RewardCurve> CURVES = new ConcurrentHashMap<Double, RewardCurve>();
+	final double learningRate;
+	// winRewards[turn] = learningRate^(turn + 1)
+	final double[] winRewards;
+	// lossRewards[turn] = learningRate^-(turn + 1)
+	final double[] lossRewards;
+	// drawRewards[turn] is the intermediate rate, for every turn
+	final double[] drawRewards;
+	
+	private RewardCurve(double learningRate) {
+		this.learningRate = learningRate;
+		this.winRewards = new double[BoardGeometry.MAX_CELLS];
+		this.lossRewards = new double[BoardGeometry.MAX_CELLS];
+		this.drawRewards = new double[BoardGeometry.MAX_CELLS];
+		// draws are rewarded at an intermediate rate
+		double reducedRate = ((learningRate - 1) / 2) + 1;
+		for (int turn = 0; turn < BoardGeometry.MAX_CELLS; turn++) {
+			this.winRewards[turn] = Math.pow(learningRate, turn + 1);
+			this.lossRewards[turn] = Math.pow(learningRate, -(turn + 1));
+			this.drawRewards[turn] = reducedRate;
+		}
+	}
+	
+	/**
+	 * gets the (shared) RewardCurve for a learning rate
+	 * @param learningRate a double, the learning rate
+	 * @return the RewardCurve for that rate
+	 */
+	static RewardCurve forRate(double learningRate) {
+		return CURVES.computeIfAbsent(learningRate, RewardCurve::new);
+	}
+}
@@ -0,0 +1,108 @@
+package noughts_and_crosses;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * A SelectorPolicy is a Policy which keeps a separate MoveSelector
+ * for each GameState it has seen. It is the simplest Policy, and the
+ * most convenient for inspecting what a player has learned, but each
+ * state costs a GameState copy and a MoveSelector with its own HashMap;
+ * see DensePolicy for a more compact alternative
+ * @author H Gulliver
+ *
+ */
+public class SelectorPolicy implements Policy {
+	private final HashMap<GameState, MoveSelector> moveSelectors;
+	// the same MoveSelectors, in order of index
+	private final ArrayList<MoveSelector> selectorsByIndex;
+	
+	public SelectorPolicy() {
+		this.moveSelectors = new HashMap<GameState, MoveSelector>();
+		this.selectorsByIndex = new ArrayList<MoveSelector>();
+	}
+	
+	@Override
+	public int findState(GameState state) {
+		MoveSelector selector = this.moveSelectors.get(state);
+		if (selector == null) {
+			BoardGeometry geometry = this.getGeometry();
+			if (geometry != null && state.geometry != geometry) {
+				throw new IllegalArgumentException("A Policy can only hold states of one board geometry");
+			}
+			selector = new MoveSelector(state, this.selectorsByIndex.size());
+			// the selector holds its own copy of the game state, which
+			// is safe to use as the key
+			this.moveSelectors.put(selector.gameState, selector);
+			this.selectorsByIndex.add(selector);
+		}
+		return selector.index;
+	}
+	
+	@Override
+	public BoardGeometry getGeometry() {
+		if (this.selectorsByIndex.isEmpty()) {
+			return null;
+		}
+		return this.selectorsByIndex.get(0).gameState.geometry;
+	}
+	
+	@Override
+	public int size() {
+		return this.selectorsByIndex.size();
+	}
+	
+	@Override
+	public long getKey(int state) {
+		return this.getSelector(state).gameState.getKey();
+	}
+	
+	@Override
+	public void getProbabilities(int state, double[] probabilities) {
+		this.getSelector(state).getProbabilities(probabilities);
+	}
+	
+	/**
+	 * gets the MoveSelector for a given state
+	 * @param state the index of the state
+	 * @return the MoveSelector holding that state's odds
+	 */
+	public MoveSelector getSelector(int state) {
+		return this.selectorsByIndex.get(state);
+	}
+	
+	@Override
+	public Move selectMove(int state, RandomGenerator random, boolean verbose) {
+		return this.getSelector(state).selectMove(random, verbose);
+	}
+	
+	@Override
+	public void multiplyOdds(int state, Move move, double multiplier) {
+		this.getSelector(state).multiplyOdds(move, multiplier);
+	}
+	
+	@Override
+	public void reinforce(int[] states, int[] cells, int[] turns, double[] rewardCurve, int length) {
+		// MoveSelectors work in log space, so need no rescaling
+		for (int i = 0; i < length; i++) {
+			MoveSelector selector = this.getSelector(states[i]);
+			Move move = selector.gameState.getMove(cells[i]);
+			selector.multiplyOdds(move, rewardCurve[turns[i]]);
+		}
+	}
+	
+	@Override
+	public void zeroOdds(int state, Move move) {
+		this.getSelector(state).zeroOdds(move);
+	}
+	
+	@Override
+	public void makeCertain(int state, Move move) {
+		this.getSelector(state).makeCertain(move);
+	}
+	
+	@Override
+	public void randomiseOdds(int state, RandomGenerator random) {
+		this.getSelector(state).randomiseOdds(random);
+	}
+}
@@ -0,0 +1,243 @@
+package noughts_and_crosses;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+
+/**
+ * A ShardedTournament plays the games of a round-robin Tournament in
+ * several worker JVMs, started as child processes on the same machine, so
+ * that a big evaluation is not limited by one JVM's heap and garbage
+ * collector. The players are serialized to a file, and each worker
+ * deserializes its own copy of them; the games (numbered as in a
+ * ResultsStore: round by round, every ordered pair of distinct players) are
+ * split into one contiguous block per worker. Each worker plays its block
+ * on a single reused Game and writes the results to its own file, two bits
+ * per game, which the coordinator merges into a ResultsStore once every
+ * worker has finished.
+ *
+ * Since each worker has separate copies of the players, anything the
+ * players learn during the games stays in the workers, and the players
+ * given to the ShardedTournament are not changed; it is intended for
+ * evaluating frozen players (e.g. CompiledPlayers). Given a seed, each
+ * worker seeds its players from a generator split off it, so the results
+ * are reproducible for a given number of workers; without one, the seed
+ * chosen can be had from getSeed to repeat the run.
+ *
+ * The worker side is the main method of this class
+ * @author H Gulliver
+ *
+ */
+public class ShardedTournament {
+	private static final int GAMES_PER_BYTE = 4;
+	Player[] players;
+	int numRounds;
+	int numPlayers;
+	final int numWorkers;
+	private final long seed;
+	ResultsStore results;
+
+	public ShardedTournament(Player[] players, int numRounds, int numWorkers) {
+		this(players, numRounds, numWorkers, BoardGeometry.STANDARD, new SplittableRandom().nextLong());
+	}
+
+	public ShardedTournament(Player[] players, int numRounds, int numWorkers, BoardGeometry geometry, long seed) {
+		if (numWorkers < 1) {
+			throw new IllegalArgumentException("There must be at least one worker");
+		}
+		this.players = players;
+		this.numRounds = numRounds;
+		this.numPlayers = players.length;
+		this.numWorkers = numWorkers;
+		this.seed = seed;
+		this.results = new ResultsStore(this.numPlayers);
+		this.runTournament(geometry);
+	}
+
+	/**
+	 * starts the workers, waits for them all to finish, and merges their
+	 * results. If anything fails, any workers still running are stopped
+	 * before their files are deleted
+	 * @param geometry the board every game is played on
+	 */
+	private void runTournament(BoardGeometry geometry) {
+		long numGames = (long) this.numRounds * this.numPlayers * (this.numPlayers - 1);
+		File directory = null;
+		Process[] workers = new Process[this.numWorkers];
+		try {
+			directory = Files.createTempDirectory("tournament").toFile();
+			File playersFile = new File(directory, "players.ser");
+			try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(playersFile)))) {
+				out.writeObject(this.players);
+			}
+			String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+			SplittableRandom seeds = new SplittableRandom(this.seed);
+			File[] resultsFiles = new File[this.numWorkers];
+			for (int worker = 0; worker < this.numWorkers; worker++) {
+				resultsFiles[worker] = new File(directory, String.format("results%d.bin", worker));
+				ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						ShardedTournament.class.getName(), playersFile.getPath(), resultsFiles[worker].getPath(),
+						Long.toString(numGames * worker / this.numWorkers),
+						Long.toString(numGames * (worker + 1) / this.numWorkers),
+						Integer.toString(geometry.rows), Integer.toString(geometry.cols),
+						Integer.toString(geometry.winLength), Long.toString(seeds.split().nextLong()));
+				workers[worker] = builder.inheritIO().start();
+			}
+			for (int worker = 0; worker < this.numWorkers; worker++) {
+				int exitCode = workers[worker].waitFor();
+				if (exitCode != 0) {
+					throw new IllegalStateException(String.format("Worker %d failed with exit code %d", worker, exitCode));
+				}
+			}
+			for (int worker = 0; worker < this.numWorkers; worker++) {
+				this.mergeResults(resultsFiles[worker], numGames * worker / this.numWorkers);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for the workers", e);
+		} finally {
+			// the destroyed workers must exit before their files are deleted, so
+			// wait for them regardless of interrupts, and restore any afterwards
+			boolean interrupted = Thread.interrupted();
+			for (Process worker : workers) {
+				if (worker != null && worker.isAlive()) {
+					worker.destroyForcibly();
+					while (worker.isAlive()) {
+						try {
+							worker.waitFor();
+						} catch (InterruptedException e) {
+							interrupted = true;
+						}
+					}
+				}
+			}
+			if (directory != null) {
+				for (File file : directory.listFiles()) {
+					file.delete();
+				}
+				directory.delete();
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * reads a worker's results into this.results
+	 * @param resultsFile the file the worker wrote
+	 * @param firstGame   the number of the first game the worker played
+	 */
+	private void mergeResults(File resultsFile, long firstGame) throws IOException {
+		int[] players = new int[3];
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(resultsFile)))) {
+			long numGames = in.readLong();
+			int packed = 0;
+			for (long i = 0; i < numGames; i++) {
+				if (i % GAMES_PER_BYTE == 0) {
+					packed = in.readUnsignedByte();
+				}
+				int code = (packed >>> (2 * (int) (i % GAMES_PER_BYTE))) & 3;
+				ShardedTournament.findGame(firstGame + i, this.numPlayers, players);
+				this.results.recordResult(players[0], players[1], players[2], ResultsStore.decode(code));
+			}
+		}
+	}
+
+	/**
+	 * works out the round and players of a game from its number
+	 * @param game       a long, the number of the game
+	 * @param numPlayers an int, the number of players
+	 * @param players    an array to fill with the round, the index of the
+	 *                   noughts player, and the index of the crosses player
+	 */
+	static void findGame(long game, int numPlayers, int[] players) {
+		int gamesPerRound = numPlayers * (numPlayers - 1);
+		int position = (int) (game % gamesPerRound);
+		int noughts = position / (numPlayers - 1);
+		// skip the missing game of each player against itself
+		int opponent = position % (numPlayers - 1);
+		players[0] = (int) (game / gamesPerRound);
+		players[1] = noughts;
+		players[2] = (opponent < noughts) ? opponent : opponent + 1;
+	}
+
+	/**
+	 * the worker side: plays a block of games and writes their results
+	 * @param args the players file, the results file, the first game and
+	 *             one past the last game to play, the rows, columns and
+	 *             winning length of the board, and the seed
+	 */
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		File playersFile = new File(args[0]);
+		File resultsFile = new File(args[1]);
+		long firstGame = Long.parseLong(args[2]);
+		long endGame = Long.parseLong(args[3]);
+		BoardGeometry geometry = BoardGeometry.of(Integer.parseInt(args[4]), Integer.parseInt(args[5]), Integer.parseInt(args[6]));
+		long seed = Long.parseLong(args[7]);
+
+		Player[] players;
+		try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(playersFile)))) {
+			players = (Player[]) in.readObject();
+		}
+		Tournament.seedPlayers(players, new SplittableRandom(seed));
+		Game game = new Game(new Board(geometry));
+		int[] gamePlayers = new int[3];
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(resultsFile)))) {
+			out.writeLong(endGame - firstGame);
+			int packed = 0;
+			for (long i = 0; i < endGame - firstGame; i++) {
+				ShardedTournament.findGame(firstGame + i, players.length, gamePlayers);
+				game.reset(players[gamePlayers[1]], players[gamePlayers[2]]);
+				int code = ResultsStore.encode(game.runGame());
+				packed |= code << (2 * (int) (i % GAMES_PER_BYTE));
+				if (i % GAMES_PER_BYTE == GAMES_PER_BYTE - 1) {
+					out.writeByte(packed);
+					packed = 0;
+				}
+			}
+			if ((endGame - firstGame) % GAMES_PER_BYTE != 0) {
+				out.writeByte(packed);
+			}
+		}
+	}
+
+	/**
+	 * gives the seed the workers' generators were split off, e.g. to
+	 * repeat a run that was not given one
+	 * @return a long, the seed of this tournament
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+
+	/**
+	 * gets the results of a particular player in the tournament
+	 * @param playerNumber an int, the index of the player whose results should be given
+	 * @return a PlayerResults object recording the player's results
+	 */
+	public PlayerResults reportPlayerResults(int playerNumber) {
+		return this.results.reportPlayerResults(this.players[playerNumber], playerNumber);
+	}
+
+	/**
+	 * finds the top k players, ranked as by Tournament.getRankedResults
+	 * @param k an int, the number of players wanted
+	 * @return an array of PlayerResults for the k highest ranked players
+	 *         (or every player, if fewer), highest ranked first
+	 */
+	public PlayerResults[] getRankedResults(int k) {
+		return this.results.getRankedResults(this.players, k);
+	}
+}
@@ -0,0 +1,105 @@
+package noughts_and_crosses;
+import java.util.Arrays;
+
+/**
+ * A StateBlocks lays out per-move data for every GameState seen in one
+ * flat array, owned by the caller (e.g. the odds of a DensePolicy or the
+ * values of a QLearningPlayer). Each state is given a dense index by a
+ * StateIndex, and owns a contiguous block of entries with one per legal
+ * move, in increasing order of cell index. The legal cells of each state
+ * are remembered as a bitmask, so the entry for a move is found with a
+ * single bit count. Every state must be on the same BoardGeometry, as
+ * keys alone do not say which geometry a state is on
+ * @author H Gulliver
+ *
+ */
+final class StateBlocks implements java.io.Serializable {
+	private static final int INITIAL_CAPACITY = 64;
+	private final StateIndex stateIndex;
+	// geometry of every state, fixed by the first
+	BoardGeometry geometry;
+	// bitmask of the legal cells of each state
+	int[] legalCells;
+	// start of each state's block
+	int[] offsets;
+	// entries allocated so far, i.e. the end of the last block
+	int numEntries;
+
+	StateBlocks() {
+		this.stateIndex = new StateIndex();
+		this.legalCells = new int[INITIAL_CAPACITY];
+		this.offsets = new int[INITIAL_CAPACITY];
+		this.numEntries = 0;
+	}
+
+	/**
+	 * finds the index of a GameState, allocating it the next block of
+	 * entries if it has not been seen before; the caller can tell a new
+	 * state by its index being the previous size, and must then make room
+	 * for numEntries entries in its own array
+	 * @param state the GameState to look up
+	 * @return an int, the index of the state
+	 */
+	int findState(GameState state) {
+		if (this.geometry == null) {
+			this.geometry = state.geometry;
+		} else if (state.geometry != this.geometry) {
+			throw new IllegalArgumentException("Only states of one board geometry can be stored together");
+		}
+		int numStates = this.stateIndex.size();
+		int index = this.stateIndex.findOrAdd(state.getKey());
+		if (index == numStates) {
+			if (index == this.legalCells.length) {
+				this.legalCells = Arrays.copyOf(this.legalCells, 2 * index);
+				this.offsets = Arrays.copyOf(this.offsets, 2 * index);
+			}
+			int emptyCells = state.getEmptyCells();
+			this.legalCells[index] = emptyCells;
+			this.offsets[index] = this.numEntries;
+			this.numEntries += Integer.bitCount(emptyCells);
+		}
+		return index;
+	}
+
+	/**
+	 * gives the number of states seen so far
+	 * @return an int; indices run from 0 to this minus 1
+	 */
+	int size() {
+		return this.stateIndex.size();
+	}
+
+	/**
+	 * gets the packed key of the state with a given index
+	 * @param state the index of the state
+	 * @return the long key (see GameState.getKey) of that state
+	 */
+	long getKey(int state) {
+		return this.stateIndex.getKey(state);
+	}
+
+	/**
+	 * gives the number of legal moves, and so entries, of a state
+	 * @param state the index of the state
+	 * @return an int, the length of the state's block
+	 */
+	int getNumMoves(int state) {
+		return Integer.bitCount(this.legalCells[state]);
+	}
+
+	/**
+	 * finds the entry of a legal move in a state's block
+	 * @param state the index of the state
+	 * @param cell  the cell index of the move
+	 * @return an int, the index of the move's entry in the flat array,
+	 * or -1 if the cell is not a legal move in the state
+	 */
+	int findEntry(int state, int cell) {
+		int legal = this.legalCells[state];
+		int cellBit = 1 << cell;
+		if ((legal & cellBit) == 0) {
+			return -1;
+		}
+		return this.offsets[state] + Integer.bitCount(legal & (cellBit - 1));
+	}
+}
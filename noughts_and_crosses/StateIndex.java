@@ -0,0 +1,115 @@
+package noughts_and_crosses;
+import java.util.Arrays;
+
+/**
+ * A StateIndex assigns each GameState it is given a dense integer
+ * index (0, 1, 2, ... in order of first sight), so that anything
+ * stored per state can live in flat primitive arrays indexed by it.
+ * States are identified by their packed key (GameState.getKey), and
+ * looked up in an open-addressing hash table of ints, so neither a
+ * lookup nor an insertion allocates (other than when the table grows)
+ * @author H Gulliver
+ *
+ */
+public class StateIndex implements java.io.Serializable {
+	private static final int INITIAL_CAPACITY = 64;
+	// hash table of (index + 1), with 0 marking an empty slot
+	private int[] table;
+	// the packed key of each state, in order of index
+	private long[] keys;
+	private int size;
+	
+	public StateIndex() {
+		this.table = new int[2 * INITIAL_CAPACITY];
+		this.keys = new long[INITIAL_CAPACITY];
+		this.size = 0;
+	}
+	
+	/**
+	 * spreads a packed key over an int, for choosing a hash table slot
+	 * @param key a packed GameState key
+	 * @return an int hash of the key
+	 */
+	static int hash(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+	}
+	
+	/**
+	 * gives the number of states indexed so far
+	 * @return an int; indices run from 0 to this minus 1
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * gets the packed key of the state with a given index
+	 * @param index the index of the state
+	 * @return the long key (see GameState.getKey) of that state
+	 */
+	public long getKey(int index) {
+		return this.keys[index];
+	}
+	
+	/**
+	 * finds the index of a state, if it has been indexed
+	 * @param key the packed key of the state
+	 * @return the index of the state, or -1 if it is not indexed
+	 */
+	public int find(long key) {
+		int mask = this.table.length - 1;
+		int slot = StateIndex.hash(key) & mask;
+		while (this.table[slot] != 0) {
+			int index = this.table[slot] - 1;
+			if (this.keys[index] == key) {
+				return index;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+	
+	/**
+	 * finds the index of a state, indexing it if it is new
+	 * @param key the packed key of the state
+	 * @return the index of the state
+	 */
+	public int findOrAdd(long key) {
+		int mask = this.table.length - 1;
+		int slot = StateIndex.hash(key) & mask;
+		while (this.table[slot] != 0) {
+			int index = this.table[slot] - 1;
+			if (this.keys[index] == key) {
+				return index;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int index = this.size++;
+		if (index == this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, 2 * this.keys.length);
+		}
+		this.keys[index] = key;
+		this.table[slot] = index + 1;
+		// keep the table at most half full, so probe sequences stay short
+		if (2 * this.size > this.table.length) {
+			this.rehash(2 * this.table.length);
+		}
+		return index;
+	}
+	
+	/**
+	 * rebuilds the hash table with a new capacity
+	 * @param capacity the new table length; must be a power of 2
+	 */
+	private void rehash(int capacity) {
+		this.table = new int[capacity];
+		int mask = capacity - 1;
+		for (int index = 0; index < this.size; index++) {
+			int slot = StateIndex.hash(this.keys[index]) & mask;
+			while (this.table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			this.table[slot] = index + 1;
+		}
+	}
+}
@@ -1,120 +1,342 @@
 package noughts_and_crosses;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * A Tournament object runs a specified number of games between a given collection of players,
  * and optionally records the results to provide stats and a ranking.
  * A Tournament without results recorded is suitable for training rounds, and then a second
- * Tournament with results for determining the strongest players
+ * Tournament with results for determining the strongest players.
+ * If given a seed, the Tournament splits a separate random number generator
+ * off it for each player, so the whole Tournament is reproducible.
+ * With self-play switched on, each player also plays one game per round
+ * against itself, taking both seats; these games give a learning player
+ * experience from both sides, and are not recorded in the results.
+ * Given a ForkJoinPool, the Tournament plays each round in parallel. A
+ * player cannot be in two games at once, so the round is split into slots
+ * by the circle method (as for Berger tables), where no player appears twice
+ * in a slot. The games of each slot run on the pool together, and the next
+ * slot starts once they have all finished. Each player then plays its games
+ * in a fixed order, and results are recorded in a fixed order, so a seeded
+ * parallel Tournament is as reproducible as a sequential one (though the
+ * two orders differ, so their results do too).
+ * Every game is played on one of a few Games set up with the Tournament
+ * and reset between games (one for a sequential Tournament, one per game
+ * of the largest slot for a parallel one), so nothing is allocated per game.
+ * Games are played on the standard 3x3 board unless a BoardGeometry is given.
+ * Everything but the players and the number of rounds is set through
+ * Tournament.Options
  * @author H Gulliver
  *
  */
 public class Tournament {
 	Player[] players;
 	int numRounds;
-	RoundResults[] results;
+	ResultsStore results;
 	int numPlayers;
 	final boolean recordResults;
+	final boolean selfPlay;
+	// the pool to play games on, or null to play them one at a time
+	private final ForkJoinPool pool;
+	// the games of each slot of a parallel round, as (noughts, crosses) index pairs
+	private final int[][] schedule;
+	// the board every game is played on
+	private final BoardGeometry geometry;
+	// the Game reused for every game of a sequential Tournament
+	private Game game;
+	// the games of each slot of a parallel round, ready to submit; each
+	// position within a slot reuses the same Game
+	private List<List<ScheduledGame>> scheduledGames;
 	
 	public Tournament(Player[] players, int numRounds) {
 		this(players, numRounds, true);
 	}
 	
 	public Tournament(Player[] players, int numRounds, boolean recordResults) {
-		this.recordResults = recordResults;
+		this(players, numRounds, new Options().recordResults(recordResults));
+	}
+	
+	public Tournament(Player[] players, int numRounds, Options options) {
+		if (options.seeds != null) {
+			Tournament.seedPlayers(players, options.seeds);
+		}
+		this.geometry = options.geometry;
+		this.recordResults = options.recordResults;
+		this.selfPlay = options.selfPlay;
+		this.pool = options.pool;
+		this.schedule = (this.pool == null) ? null : Tournament.listSlots(players.length, this.selfPlay);
 		this.numPlayers = players.length;
 		this.numRounds = numRounds;
 		this.players = players;
-		if (recordResults) {
-			this.results = new RoundResults[numRounds];
+		if (this.recordResults) {
+			this.results = new ResultsStore(this.numPlayers);
 		}
+		this.setUpGames();
 		this.runTournament();
 	}
 	
 	/**
-	 * a RoundResults objects stores the results of an individual round of the
-	 * Tournament - the outcome of the game between each pair of players
+	 * the Options of a Tournament say how it is to be run; each defaults to
+	 * the behaviour of the two-argument constructor, and is set by name, e.g.
+	 * new Options().recordResults(false).pool(ForkJoinPool.commonPool()).seed(7)
 	 * @author H Gulliver
 	 *
 	 */
-	class RoundResults {
-		int roundNumber;
-		char[][] results;
+	public static class Options {
+		boolean recordResults = true;
+		boolean selfPlay = false;
+		ForkJoinPool pool = null;
+		BoardGeometry geometry = BoardGeometry.STANDARD;
+		// the generator to seed the players from, or null to leave them be
+		SplittableRandom seeds = null;
+		
+		/**
+		 * @param recordResults whether to record the result of every game
+		 * @return these Options
+		 */
+		public Options recordResults(boolean recordResults) {
+			this.recordResults = recordResults;
+			return this;
+		}
 		
-		RoundResults(int roundNumber) {
-			this.roundNumber = roundNumber;
-			int numPlayers = Tournament.this.numPlayers;
-			this.results = new char[numPlayers][numPlayers];
+		/**
+		 * @param selfPlay whether each player also plays itself once a round
+		 * @return these Options
+		 */
+		public Options selfPlay(boolean selfPlay) {
+			this.selfPlay = selfPlay;
+			return this;
 		}
 		
 		/**
-		 * records the result of a single game in the round
-		 * @param player1 an int, the index of the first player
-		 * @param player2 an int, the index of the second player
-		 * @param result  a char, 'O' if first player one, 'X' if
-		 *                second player one, 'D' if draw
+		 * @param pool the pool to play each round on in parallel, or null
+		 *             to play the games one at a time
+		 * @return these Options
 		 */
-		void recordResult(int player1, int player2, char result) {
-			this.results[player1][player2] = result;
+		public Options pool(ForkJoinPool pool) {
+			this.pool = pool;
+			return this;
 		}
 		
 		/**
-		 * returns all the results of games played by a specified player
-		 * in this round
-		 * @param player an int, the index of the player whose results are wanted
-		 * @return an array of ints, recording wins, losses, and draws
+		 * @param geometry the board every game is played on
+		 * @return these Options
 		 */
-		PlayerResults reportResultsByPlayer(int player) {
-			PlayerResults results = new PlayerResults(Tournament.this.players[player]);
-			char noughtsResult;
-			char crossesResult;
-			for (int opponent = 0; opponent < Tournament.this.numPlayers; opponent++) {
-				if (player == opponent) {
+		public Options geometry(BoardGeometry geometry) {
+			this.geometry = geometry;
+			return this;
+		}
+		
+		/**
+		 * @param seed a long, to seed the players from (see seedPlayers),
+		 *             making the Tournament reproducible
+		 * @return these Options
+		 */
+		public Options seed(long seed) {
+			return this.seeds(new SplittableRandom(seed));
+		}
+		
+		/**
+		 * @param seeds a generator to split the players' generators from
+		 * @return these Options
+		 */
+		public Options seeds(SplittableRandom seeds) {
+			this.seeds = seeds;
+			return this;
+		}
+	}
+	
+	/**
+	 * gives each player its own random number generator, split off
+	 * a single generator, in order of the players' indices
+	 * @param players the players to seed
+	 * @param seeds   the generator to split the players' generators from
+	 * @return the same array of players, for chaining into a constructor
+	 */
+	static Player[] seedPlayers(Player[] players, SplittableRandom seeds) {
+		for (Player player : players) {
+			player.setRandom(seeds.split());
+		}
+		return players;
+	}
+	
+	/**
+	 * splits a round into slots of games in which no player appears twice,
+	 * by the circle method: with the last player fixed, the others sit round
+	 * a circle, and in slot s each is paired with its reflection in s. With
+	 * an odd number of players a dummy player makes the numbers even, and
+	 * whoever is paired with it sits that slot out. The slots are played
+	 * once in each orientation, so that each pair meets with each player
+	 * as noughts once, and self-play games (if any) fill a final slot
+	 * @param numPlayers the number of players
+	 * @param selfPlay   whether each player also plays itself
+	 * @return an array of slots, each a flattened array of (noughts, crosses)
+	 *         pairs of player indices
+	 */
+	static int[][] listSlots(int numPlayers, boolean selfPlay) {
+		int circleSize = numPlayers + numPlayers % 2;
+		int numSlots = Math.max(circleSize - 1, 0);
+		int[][] slots = new int[2 * numSlots + (selfPlay ? 1 : 0)][];
+		for (int slot = 0; slot < numSlots; slot++) {
+			int[] games = new int[circleSize];
+			int[] reversed = new int[circleSize];
+			int numGames = 0;
+			for (int k = 0; k < circleSize / 2; k++) {
+				int first = (k == 0) ? circleSize - 1 : (slot + k) % numSlots;
+				int second = (slot - k + numSlots) % numSlots;
+				if (first == numPlayers || second == numPlayers) {
+					// paired with the dummy player
 					continue;
 				}
-				noughtsResult = this.results[player][opponent];
-				results.addResultAsNoughts(noughtsResult);
-				crossesResult = this.results[opponent][player];
-				results.addResultAsCrosses(crossesResult);
+				games[2 * numGames] = first;
+				games[2 * numGames + 1] = second;
+				reversed[2 * numGames] = second;
+				reversed[2 * numGames + 1] = first;
+				numGames += 1;
+			}
+			slots[slot] = Arrays.copyOf(games, 2 * numGames);
+			slots[numSlots + slot] = Arrays.copyOf(reversed, 2 * numGames);
+		}
+		if (selfPlay) {
+			int[] games = new int[2 * numPlayers];
+			for (int player = 0; player < numPlayers; player++) {
+				games[2 * player] = player;
+				games[2 * player + 1] = player;
+			}
+			slots[2 * numSlots] = games;
+		}
+		return slots;
+	}
+	
+	/**
+	 * creates the Games that every game of the Tournament is played on,
+	 * and for a parallel Tournament the ScheduledGames of each slot
+	 */
+	private void setUpGames() {
+		if (this.schedule == null) {
+			this.game = new Game(new Board(this.geometry));
+			return;
+		}
+		int maxGames = 0;
+		for (int[] slot : this.schedule) {
+			maxGames = Math.max(maxGames, slot.length / 2);
+		}
+		Game[] games = new Game[maxGames];
+		for (int game = 0; game < maxGames; game++) {
+			games[game] = new Game(new Board(this.geometry));
+		}
+		this.scheduledGames = new ArrayList<List<ScheduledGame>>(this.schedule.length);
+		for (int[] slot : this.schedule) {
+			List<ScheduledGame> slotGames = new ArrayList<ScheduledGame>(slot.length / 2);
+			for (int game = 0; game < slot.length; game += 2) {
+				slotGames.add(new ScheduledGame(games[game / 2], slot[game], slot[game + 1]));
 			}
-			return results;
+			this.scheduledGames.add(slotGames);
 		}
 	}
 	
 	/**
 	 * runs a sequence of games, in numRounds rounds. In each round,
-	 * every player plays every other player (not itself) twice - once
-	 * as noughts (first player), once as crosses (second player)
+	 * every player plays every other player twice - once as noughts
+	 * (first player), once as crosses (second player) - and, if selfPlay
+	 * is set, itself once
 	 */
 	public void runTournament() {
-		Player[] currentPlayers = new Player[2];
 		for (int round = 0; round < this.numRounds; round++) {
-			if (this.recordResults) {
-				this.results[round] = new RoundResults(round);
-			}
-			for (int i = 0; i < this.numPlayers; i++) {
-				currentPlayers[0] = this.players[i];
-				for (int j = 0; j < this.numPlayers; j++) {
-					if (i == j) {
-						continue;
-					}
-					currentPlayers[1] = this.players[j];
-					try {
-						Game game = new Game(currentPlayers);
-						char result = game.runGame();
-						if (this.recordResults) {
-							this.results[round].recordResult(i, j, result);
+			if (this.pool == null) {
+				for (int i = 0; i < this.numPlayers; i++) {
+					for (int j = 0; j < this.numPlayers; j++) {
+						if (i != j || this.selfPlay) {
+							this.recordGame(round, i, j, this.playGame(this.game, i, j));
 						}
-					} catch (PlayerNumberException e) {
-						String msg = String.format("Error in round %d, with players %d and %d", round, i, j);
-						System.out.println(msg);
 					}
-					
 				}
+			} else {
+				this.runRoundInParallel(round);
 			}
 			System.out.println(round);
 		}
 	}
+	
+	/**
+	 * plays one round on this.pool, one slot of this.schedule at a time
+	 * @param round an int, the index of the round
+	 */
+	private void runRoundInParallel(int round) {
+		for (List<ScheduledGame> games : this.scheduledGames) {
+			try {
+				List<Future<Character>> results = this.pool.invokeAll(games);
+				// record in schedule order, whatever order the games finished in
+				for (int game = 0; game < games.size(); game++) {
+					ScheduledGame scheduled = games.get(game);
+					this.recordGame(round, scheduled.noughts, scheduled.crosses, results.get(game).get());
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				throw new IllegalStateException(String.format("Error in round %d", round), e);
+			}
+		}
+	}
+	
+	/**
+	 * a ScheduledGame is a single game of a parallel round, to be played
+	 * on the pool, once a round, on a Game shared with the games in the same
+	 * position of the other slots
+	 * @author H Gulliver
+	 *
+	 */
+	private class ScheduledGame implements Callable<Character> {
+		final Game game;
+		final int noughts;
+		final int crosses;
+		
+		ScheduledGame(Game game, int noughts, int crosses) {
+			this.game = game;
+			this.noughts = noughts;
+			this.crosses = crosses;
+		}
+		
+		@Override
+		public Character call() {
+			return Tournament.this.playGame(this.game, this.noughts, this.crosses);
+		}
+	}
+	
+	/**
+	 * plays a single game between two players, or a self-play
+	 * game if both indices are the same
+	 * @param game the Game to play on, which is reset first
+	 * @param i    an int, the index of the noughts player
+	 * @param j    an int, the index of the crosses player
+	 * @return a char, the result of the game
+	 */
+	private char playGame(Game game, int i, int j) {
+		if (i == j) {
+			game.reset(this.players[i]);
+		} else {
+			game.reset(this.players[i], this.players[j]);
+		}
+		return game.runGame();
+	}
+	
+	/**
+	 * records the result of a game, if results are being recorded;
+	 * self-play games are not recorded
+	 * @param round  an int, the index of the round
+	 * @param i      an int, the index of the noughts player
+	 * @param j      an int, the index of the crosses player
+	 * @param result a char, the result of the game
+	 */
+	private void recordGame(int round, int i, int j, char result) {
+		if (this.recordResults && i != j) {
+			this.results.recordResult(round, i, j, result);
+		}
+	}
 
 	/**
 	 * gets the results of a particular player in the tournament
@@ -122,42 +344,38 @@ public class Tournament {
 	 * @return a PlayerResults object recording the player's results
 	 */
 	public PlayerResults reportPlayerResults(int playerNumber) {
-		Player player = this.players[playerNumber];
-		PlayerResults results = new PlayerResults(player);
-		for (int round = 0; round < this.numRounds; round++) {
-			RoundResults roundResults = this.results[round];
-			PlayerResults current = roundResults.reportResultsByPlayer(playerNumber);
-			results.add(roundResults.reportResultsByPlayer(playerNumber));
-		}
-		return results;
+		return this.results.reportPlayerResults(this.players[playerNumber], playerNumber);
 	}
 
 	/**
 	 * Ranks the players based on their performance in the tournament.
-	 * The ordering used for the ranking is number of wins (more wins means
-	 * higher ranking), with ties resolved by number of losses (more losses
-	 * means lower ranking). When two players have the same number of wins
-	 * and losses, this method may rank them in either order relative to
-	 * each other
+	 * The ordering used for the ranking is that of PlayerResults: number of
+	 * losses (fewer losses means higher ranking), with ties resolved by
+	 * number of wins (more wins means higher ranking). When two players have
+	 * the same number of wins and losses, this method may rank them in
+	 * either order relative to each other
 	 * @return an array of PlayerResults, one for each player in this.players,
 	 *         in order of highest ranked first to lowest ranked last
 	 */
 	public PlayerResults[] getRankedResults() {
-		PlayerResults[] results = new PlayerResults[this.numPlayers];
-		for (int player = 0; player < this.numPlayers; player++) {
-			results[player] = this.reportPlayerResults(player);
-		}
-		Arrays.sort(results);
-		return results;
+		return this.getRankedResults(this.numPlayers);
 	}
 	
 	/**
-	 * Ranks the players based on their performance in the tournament.
-	 * The ordering used for the ranking is number of wins (more wins means
-	 * higher ranking), with ties resolved by number of losses (more losses
-	 * means lower ranking). When two players have the same number of wins
-	 * and losses, this method may rank them in either order relative to
-	 * each other
+	 * Finds the top k players, ranked as by getRankedResults, without
+	 * ranking the rest: players are compared on the running totals kept by
+	 * the ResultsStore, and a PlayerResults is only built for the top k
+	 * @param k an int, the number of players wanted
+	 * @return an array of PlayerResults for the k highest ranked players
+	 *         (or every player, if fewer), highest ranked first
+	 */
+	public PlayerResults[] getRankedResults(int k) {
+		return this.results.getRankedResults(this.players, k);
+	}
+	
+	/**
+	 * Ranks the players based on their performance in the tournament,
+	 * as by getRankedResults
 	 * @return an array of PlayerInterfaces, one for each player in this.players,
 	 *         in order of highest ranked first to lowest ranked last
 	 */
@@ -0,0 +1,79 @@
+package noughts_and_crosses;
+import java.util.SplittableRandom;
+
+/**
+ * BoardSymmetryChecks checks the symmetries of every shape of board on
+ * random positions: that transformKey agrees with building the image, that
+ * every image of a position has the same canonical key, and that mapping a
+ * cell or Move back from the image returns the original
+ * @author H Gulliver
+ *
+ */
+final class BoardSymmetryChecks {
+	private static final int POSITIONS_PER_GEOMETRY = 2000;
+
+	private BoardSymmetryChecks() {
+		// static methods only
+	}
+
+	static void run() {
+		SplittableRandom random = new SplittableRandom(2);
+		for (BoardGeometry geometry : Checks.GEOMETRIES) {
+			BoardSymmetryChecks.checkCellMaps(geometry);
+			for (int position = 0; position < POSITIONS_PER_GEOMETRY; position++) {
+				GameState state = new GameState(geometry);
+				int numMoves = random.nextInt(geometry.numCells + 1);
+				for (int move = 0; move < numMoves && state.getResult() == ' '; move++) {
+					Checks.makeRandomMove(state, random);
+				}
+				BoardSymmetryChecks.checkImages(state);
+			}
+		}
+	}
+
+	/**
+	 * checks that untransformCell and untransformMove undo each symmetry,
+	 * and that each symmetry is a permutation of the cells
+	 */
+	private static void checkCellMaps(BoardGeometry geometry) {
+		for (int t = 0; t < BoardSymmetry.numSymmetries(geometry); t++) {
+			int image = 0;
+			for (int cell = 0; cell < geometry.numCells; cell++) {
+				int transformed = geometry.cellMaps[t][cell];
+				image |= 1 << transformed;
+				Checks.check(BoardSymmetry.untransformCell(geometry, transformed, t) == cell,
+						"%s: symmetry %d does not map cell %d back", geometry, t, cell);
+				Move move = BoardSymmetry.untransformMove(geometry, geometry.getMove(transformed), t);
+				Checks.check(move == geometry.getMove(cell), "%s: symmetry %d does not map the move of cell %d back",
+						geometry, t, cell);
+			}
+			Checks.check(image == geometry.fullMask, "%s: symmetry %d is not a permutation", geometry, t);
+		}
+	}
+
+	/**
+	 * checks every image of a position against the position itself
+	 */
+	private static void checkImages(GameState state) {
+		BoardGeometry geometry = state.geometry;
+		long canonicalKey = BoardSymmetry.transformKey(state, BoardSymmetry.findCanonicalSymmetry(state));
+		GameState image = new GameState(geometry);
+		for (int t = 0; t < BoardSymmetry.numSymmetries(geometry); t++) {
+			BoardSymmetry.transformInto(state, t, image);
+			Checks.check(image.getKey() == BoardSymmetry.transformKey(state, t),
+					"%s: transformKey disagrees with transformInto for symmetry %d", geometry, t);
+			Checks.check(image.turn == state.turn && image.getResult() == state.getResult(),
+					"%s: symmetry %d changed the turn or result", geometry, t);
+			for (int cell = 0; cell < geometry.numCells; cell++) {
+				Move move = geometry.getMove(cell);
+				Move imageMove = geometry.getMove(geometry.cellMaps[t][cell]);
+				Checks.check(image.getSymbol(imageMove.row, imageMove.col) == state.getSymbol(move.row, move.col),
+						"%s: symmetry %d moved the symbol of cell %d to the wrong cell", geometry, t, cell);
+			}
+			long imageCanonicalKey = BoardSymmetry.transformKey(image, BoardSymmetry.findCanonicalSymmetry(image));
+			Checks.check(imageCanonicalKey == canonicalKey,
+					"%s: the image under symmetry %d has a different canonical key", geometry, t);
+			Checks.check(canonicalKey <= image.getKey(), "%s: the canonical key is not the smallest", geometry);
+		}
+	}
+}
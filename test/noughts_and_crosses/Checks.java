@@ -0,0 +1,89 @@
+package noughts_and_crosses;
+import java.util.SplittableRandom;
+
+/**
+ * Checks runs every automated check of the engine, the policies, and the
+ * tournaments, stopping at the first failure with an AssertionError. The
+ * checks need nothing beyond the JDK; from the root of the project:
+ *
+ *   javac -d build noughts_and_crosses/*.java test/noughts_and_crosses/*.java
+ *   java -cp build noughts_and_crosses.Checks
+ *
+ * The checks are in the same package as the code, so they can reach its
+ * package-private methods, and every random choice is seeded, so a failure
+ * can be repeated
+ * @author H Gulliver
+ *
+ */
+public final class Checks {
+	// boards of several shapes, including degenerate ones
+	static final BoardGeometry[] GEOMETRIES = {
+			BoardGeometry.STANDARD, BoardGeometry.of(4, 4, 3), BoardGeometry.of(5, 5, 4),
+			BoardGeometry.of(3, 4, 3), BoardGeometry.of(2, 5, 2), BoardGeometry.of(4, 8, 4),
+			BoardGeometry.of(3, 3, 1), BoardGeometry.of(1, 1, 1) };
+
+	private Checks() {
+		// static methods only
+	}
+
+	/**
+	 * fails if a condition does not hold
+	 * @param condition the condition to check
+	 * @param format    a format string describing the failure
+	 * @param args      the arguments of the format string
+	 */
+	static void check(boolean condition, String format, Object... args) {
+		if (!condition) {
+			throw new AssertionError(String.format(format, args));
+		}
+	}
+
+	/**
+	 * fails if the observed frequency of an outcome is implausibly far from
+	 * its probability: more than six standard deviations, so a correct
+	 * sampler practically never fails
+	 * @param count       an int, the number of times the outcome was seen
+	 * @param numSamples  an int, the number of samples
+	 * @param probability the probability of the outcome
+	 * @param what        a description of the outcome, for the failure message
+	 */
+	static void checkFrequency(int count, int numSamples, double probability, String what) {
+		double expected = numSamples * probability;
+		double tolerance = 6.0 * Math.sqrt(numSamples * probability * (1.0 - probability)) + 1.0;
+		Checks.check(Math.abs(count - expected) <= tolerance,
+				"%s: seen %d times in %d, expected %.1f", what, count, numSamples, expected);
+	}
+
+	/**
+	 * chooses an empty cell of a GameState uniformly at random
+	 * @param state  a GameState with at least one empty cell
+	 * @param random the generator to choose with
+	 * @return an int, the index of the chosen cell
+	 */
+	static int randomEmptyCell(GameState state, SplittableRandom random) {
+		int emptyCells = state.getEmptyCells();
+		for (int skip = random.nextInt(Integer.bitCount(emptyCells)); skip > 0; skip--) {
+			emptyCells &= emptyCells - 1; // clear lowest set bit
+		}
+		return Integer.numberOfTrailingZeros(emptyCells);
+	}
+
+	/**
+	 * plays a random legal move for whichever side is to move
+	 * @param state  a GameState whose game is not over
+	 * @param random the generator to choose with
+	 */
+	static void makeRandomMove(GameState state, SplittableRandom random) {
+		state.makeMove(Checks.randomEmptyCell(state, random), state.symbolToMove());
+	}
+
+	public static void main(String[] args) {
+		GameStateChecks.run();
+		BoardSymmetryChecks.run();
+		MoveSelectorChecks.run();
+		TournamentChecks.run();
+		ResultsChecks.run();
+		PlayerChecks.run();
+		System.out.println("All checks passed");
+	}
+}
@@ -0,0 +1,99 @@
+package noughts_and_crosses;
+import java.util.SplittableRandom;
+
+/**
+ * GameStateChecks checks the bitboard GameState: its incremental win
+ * detection against a brute-force scan of the board after every move, and
+ * that unmaking moves restores every earlier state exactly
+ * @author H Gulliver
+ *
+ */
+final class GameStateChecks {
+	private static final int GAMES_PER_GEOMETRY = 2000;
+
+	private GameStateChecks() {
+		// static methods only
+	}
+
+	static void run() {
+		SplittableRandom random = new SplittableRandom(1);
+		for (BoardGeometry geometry : Checks.GEOMETRIES) {
+			for (int game = 0; game < GAMES_PER_GEOMETRY; game++) {
+				GameStateChecks.checkWinDetection(geometry, random);
+				GameStateChecks.checkUnmake(geometry, random);
+			}
+		}
+	}
+
+	/**
+	 * plays a random game, comparing the result after every move with a
+	 * brute-force scan of the board
+	 */
+	private static void checkWinDetection(BoardGeometry geometry, SplittableRandom random) {
+		GameState state = new GameState(geometry);
+		while (true) {
+			char expected = GameStateChecks.scanResult(state);
+			Checks.check(state.getResult() == expected, "%s: result '%c' after %d moves, but a scan gives '%c'",
+					geometry, state.getResult(), state.turn, expected);
+			if (expected != ' ') {
+				return;
+			}
+			Checks.makeRandomMove(state, random);
+		}
+	}
+
+	/**
+	 * works out the result of a position by looking for a line of
+	 * winLength equal symbols from every cell in every direction; only the
+	 * side that moved last can have won, since play stops at a win
+	 * @param state the GameState to scan
+	 * @return 'O' or 'X' for a win, 'D' for a full board, otherwise ' '
+	 */
+	private static char scanResult(GameState state) {
+		BoardGeometry geometry = state.geometry;
+		int[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+		for (int row = 0; row < geometry.rows; row++) {
+			for (int col = 0; col < geometry.cols; col++) {
+				char symbol = state.getSymbol(row, col);
+				if (symbol == ' ') {
+					continue;
+				}
+				for (int[] direction : directions) {
+					int length = 1;
+					while (length < geometry.winLength
+							&& geometry.isOnBoard(row + length * direction[0], col + length * direction[1])
+							&& state.getSymbol(row + length * direction[0], col + length * direction[1]) == symbol) {
+						length += 1;
+					}
+					if (length == geometry.winLength) {
+						return symbol;
+					}
+				}
+			}
+		}
+		return (state.getEmptyCells() == 0) ? 'D' : ' ';
+	}
+
+	/**
+	 * plays a random game, then unmakes its moves one by one, checking
+	 * that each earlier state comes back exactly
+	 */
+	private static void checkUnmake(BoardGeometry geometry, SplittableRandom random) {
+		GameState state = new GameState(geometry);
+		long[] keys = new long[geometry.numCells + 1];
+		char[] results = new char[geometry.numCells + 1];
+		keys[0] = state.getKey();
+		results[0] = state.getResult();
+		while (state.getResult() == ' ') {
+			Checks.makeRandomMove(state, random);
+			keys[state.turn] = state.getKey();
+			results[state.turn] = state.getResult();
+		}
+		while (state.turn > 0) {
+			state.unmakeMove();
+			Checks.check(state.getKey() == keys[state.turn] && state.getResult() == results[state.turn],
+					"%s: unmaking back to turn %d did not restore the state", geometry, state.turn);
+		}
+		Checks.check(state.equals(new GameState(geometry)), "%s: unmaking every move did not clear the board", geometry);
+	}
+}
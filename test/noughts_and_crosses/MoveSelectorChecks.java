@@ -0,0 +1,107 @@
+package noughts_and_crosses;
+import java.util.SplittableRandom;
+
+/**
+ * MoveSelectorChecks checks that moves are sampled in proportion to the
+ * probabilities reported by getProbabilities, for a MoveSelector and for
+ * each Policy, after the odds have been changed in every way a learner can
+ * change them (including far enough to move a MoveSelector's reference
+ * point), and that a move with zero odds is never chosen
+ * @author H Gulliver
+ *
+ */
+final class MoveSelectorChecks {
+	private static final int NUM_SAMPLES = 100000;
+	private static final int NUM_POSITIONS = 6;
+
+	private MoveSelectorChecks() {
+		// static methods only
+	}
+
+	static void run() {
+		SplittableRandom random = new SplittableRandom(3);
+		for (BoardGeometry geometry : new BoardGeometry[] { BoardGeometry.STANDARD, BoardGeometry.of(4, 4, 3) }) {
+			for (int position = 0; position < NUM_POSITIONS; position++) {
+				GameState state = new GameState(geometry);
+				for (int move = random.nextInt(3); move > 0; move--) {
+					Checks.makeRandomMove(state, random);
+				}
+				MoveSelectorChecks.checkSelector(state, random);
+				MoveSelectorChecks.checkPolicy(new SelectorPolicy(), state, random);
+				MoveSelectorChecks.checkPolicy(new DensePolicy(), state, random);
+			}
+		}
+	}
+
+	/**
+	 * changes the odds of a MoveSelector at random, then compares its
+	 * sampling with its probabilities
+	 */
+	private static void checkSelector(GameState state, SplittableRandom random) {
+		MoveSelector selector = new MoveSelector(state);
+		Move zeroed = state.getMove(Checks.randomEmptyCell(state, random));
+		for (int change = 0; change < 50; change++) {
+			Move move = state.getMove(Checks.randomEmptyCell(state, random));
+			// big factors either way, so the reference point has to move
+			selector.multiplyOdds(move, Math.exp(40.0 * (random.nextDouble() - 0.5)));
+		}
+		selector.zeroOdds(zeroed);
+		double[] probabilities = new double[state.geometry.numCells];
+		selector.getProbabilities(probabilities);
+		int[] counts = new int[state.geometry.numCells];
+		for (int sample = 0; sample < NUM_SAMPLES; sample++) {
+			Move move = selector.selectMove(random);
+			counts[state.cellIndex(move.row, move.col)] += 1;
+		}
+		MoveSelectorChecks.checkCounts(state, probabilities, counts, "MoveSelector");
+	}
+
+	/**
+	 * changes the odds of a state of a Policy at random, by single moves
+	 * and by a reinforced trajectory (which visits the state twice), then
+	 * compares its sampling with its probabilities
+	 */
+	private static void checkPolicy(Policy policy, GameState state, SplittableRandom random) {
+		int index = policy.findState(state);
+		Checks.check(policy.findState(new GameState(state)) == index, "%s: the same state was given two indices",
+				policy.getClass().getSimpleName());
+		for (int change = 0; change < 10; change++) {
+			Move move = state.getMove(Checks.randomEmptyCell(state, random));
+			// big factors either way, so the odds are simplified and the
+			// running total of a DensePolicy is summed afresh
+			policy.multiplyOdds(index, move, Math.exp(40.0 * (random.nextDouble() - 0.5)));
+		}
+		int[] states = { index, index };
+		int[] cells = { Checks.randomEmptyCell(state, random), Checks.randomEmptyCell(state, random) };
+		int[] turns = { 0, 1 };
+		policy.reinforce(states, cells, turns, new double[] { 3.0, 0.5 }, 2);
+		Move zeroed = state.getMove(Checks.randomEmptyCell(state, random));
+		policy.zeroOdds(index, zeroed);
+		double[] probabilities = new double[state.geometry.numCells];
+		policy.getProbabilities(index, probabilities);
+		int[] counts = new int[state.geometry.numCells];
+		for (int sample = 0; sample < NUM_SAMPLES; sample++) {
+			Move move = policy.selectMove(index, random, false);
+			counts[state.cellIndex(move.row, move.col)] += 1;
+		}
+		MoveSelectorChecks.checkCounts(state, probabilities, counts, policy.getClass().getSimpleName());
+	}
+
+	/**
+	 * checks sampled counts against probabilities, and that the
+	 * probabilities are a distribution over the legal moves
+	 */
+	private static void checkCounts(GameState state, double[] probabilities, int[] counts, String what) {
+		double total = 0.0;
+		for (int cell = 0; cell < state.geometry.numCells; cell++) {
+			Checks.check(state.isCellEmpty(cell) || probabilities[cell] == 0.0,
+					"%s: illegal cell %d has probability %f", what, cell, probabilities[cell]);
+			total += probabilities[cell];
+			if (probabilities[cell] == 0.0) {
+				Checks.check(counts[cell] == 0, "%s: cell %d has probability 0 but was chosen", what, cell);
+			}
+			Checks.checkFrequency(counts[cell], NUM_SAMPLES, probabilities[cell], String.format("%s, cell %d", what, cell));
+		}
+		Checks.check(Math.abs(total - 1.0) < 1e-9, "%s: the probabilities sum to %f", what, total);
+	}
+}
@@ -0,0 +1,62 @@
+package noughts_and_crosses;
+import java.util.SplittableRandom;
+
+/**
+ * PlayerChecks plays every kind of player, in both seats, on boards where
+ * a game can end before one side has moved (one in a row wins, so noughts
+ * wins with the first move), checking that the players cope and the
+ * results are counted, and plays each against itself, checking that each
+ * self-play game is counted once, as noughts
+ * @author H Gulliver
+ *
+ */
+final class PlayerChecks {
+	private static final int NUM_GAMES = 20;
+
+	private PlayerChecks() {
+		// static methods only
+	}
+
+	static void run() {
+		for (BoardGeometry geometry : new BoardGeometry[] { BoardGeometry.of(3, 3, 1), BoardGeometry.of(1, 1, 1) }) {
+			for (Player player : PlayerChecks.makePlayers(5)) {
+				MatchRunner match = new MatchRunner(player, new RandomPlayer("opponent"), true, false, geometry);
+				match.run(NUM_GAMES);
+				// noughts always wins in one move
+				Checks.check(match.getWins() == NUM_GAMES / 2 && match.getLosses() == NUM_GAMES / 2,
+						"%s on %s: %d wins and %d losses in %d games", player.playerID, geometry,
+						match.getWins(), match.getLosses(), NUM_GAMES);
+			}
+		}
+		for (Player player : PlayerChecks.makePlayers(6)) {
+			PlayerChecks.checkSelfPlay(player);
+		}
+	}
+
+	/**
+	 * makes one seeded player of every kind
+	 */
+	private static Player[] makePlayers(long seed) {
+		Player[] players = { new RandomPlayer("random"), new ReinforcementPlayer("reinforcement"),
+				new SymmetrisedReinforcementPlayer("symmetrised"), new QLearningPlayer("q"),
+				new BayesianPlayer("bayesian"), new PerfectPlayer("perfect"), new MonteCarloPlayer("monte carlo", 20, 1) };
+		Tournament.seedPlayers(players, new SplittableRandom(seed));
+		return players;
+	}
+
+	/**
+	 * plays a player against itself, and checks its totals against the
+	 * results seen from the noughts seat
+	 */
+	private static void checkSelfPlay(Player player) {
+		Game game = new Game(new Board(), player);
+		int[] counts = new int[3];
+		for (int i = 0; i < NUM_GAMES; i++) {
+			game.reset(player);
+			counts["OXD".indexOf(game.runGame())] += 1;
+		}
+		Checks.check(player.numWins == counts[0] && player.numLosses == counts[1] && player.numDraws == counts[2],
+				"%s in self-play: %d wins, %d losses and %d draws counted, from %d, %d and %d", player.playerID,
+				player.numWins, player.numLosses, player.numDraws, counts[0], counts[1], counts[2]);
+	}
+}
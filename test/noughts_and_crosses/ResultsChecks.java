@@ -0,0 +1,152 @@
+package noughts_and_crosses;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * ResultsChecks checks the bit-packed result stores against naive counts:
+ * a ResultsStore (with results overwritten, and its top-k ranking against a
+ * full ranking) and ResultSeries of several sizes (including ones that have
+ * wrapped, and series added to each other and to themselves)
+ * @author H Gulliver
+ *
+ */
+final class ResultsChecks {
+	private static final char[] RESULTS = { 'O', 'X', 'D' };
+
+	private ResultsChecks() {
+		// static methods only
+	}
+
+	static void run() {
+		SplittableRandom random = new SplittableRandom(4);
+		for (int numPlayers : new int[] { 2, 3, 7, 40 }) {
+			ResultsChecks.checkStore(numPlayers, 1 + random.nextInt(60), random);
+		}
+		for (int maxGames : new int[] { 1, 5, 64, 100, 1000, 1 << 30 }) {
+			int window = 1 + random.nextInt(Math.min(maxGames, 500));
+			ResultsChecks.checkSeries(window, maxGames, random);
+		}
+	}
+
+	private static void checkStore(int numPlayers, int numRounds, SplittableRandom random) {
+		ResultsStore store = new ResultsStore(numPlayers);
+		char[][][] results = new char[numRounds][numPlayers][numPlayers];
+		// every game once, then some again, replacing the first result
+		int numGames = numRounds * numPlayers * (numPlayers - 1);
+		for (int game = 0; game < numGames + numGames / 3; game++) {
+			int round = (game < numGames) ? game / (numPlayers * (numPlayers - 1)) : random.nextInt(numRounds);
+			int noughts = random.nextInt(numPlayers);
+			int crosses = (noughts + 1 + random.nextInt(numPlayers - 1)) % numPlayers;
+			char result = RESULTS[random.nextInt(RESULTS.length)];
+			store.recordResult(round, noughts, crosses, result);
+			results[round][noughts][crosses] = result;
+		}
+		int[] wins = new int[numPlayers];
+		int[] draws = new int[numPlayers];
+		int[] losses = new int[numPlayers];
+		for (int round = 0; round < numRounds; round++) {
+			for (int noughts = 0; noughts < numPlayers; noughts++) {
+				for (int crosses = 0; crosses < numPlayers; crosses++) {
+					char result = results[round][noughts][crosses];
+					if (noughts != crosses) {
+						Checks.check(store.getResult(round, noughts, crosses) == ((result == 0) ? ' ' : result),
+								"ResultsStore: wrong result in round %d, %d against %d", round, noughts, crosses);
+					}
+					if (result == 'O') {
+						wins[noughts] += 1;
+						losses[crosses] += 1;
+					} else if (result == 'X') {
+						losses[noughts] += 1;
+						wins[crosses] += 1;
+					} else if (result == 'D') {
+						draws[noughts] += 1;
+						draws[crosses] += 1;
+					}
+				}
+			}
+		}
+		Player[] players = new Player[numPlayers];
+		for (int player = 0; player < numPlayers; player++) {
+			players[player] = new RandomPlayer(Integer.toString(player));
+			Checks.check(store.getWins(player) == wins[player] && store.getDraws(player) == draws[player]
+					&& store.getLosses(player) == losses[player], "ResultsStore: wrong totals for player %d", player);
+			PlayerResults playerResults = store.reportPlayerResults(players[player], player);
+			Checks.check(playerResults.getWins() == wins[player] && playerResults.getDraws() == draws[player]
+					&& playerResults.getLosses() == losses[player], "ResultsStore: wrong PlayerResults for player %d", player);
+		}
+		// the top k must be a prefix of the full ranking, up to ties
+		PlayerResults[] ranked = store.getRankedResults(players, numPlayers);
+		for (int k = 0; k <= numPlayers; k++) {
+			PlayerResults[] top = store.getRankedResults(players, k);
+			Checks.check(top.length == k, "ResultsStore: asked for the top %d, got %d", k, top.length);
+			for (int rank = 0; rank < k; rank++) {
+				Checks.check(top[rank].getLosses() == ranked[rank].getLosses() && top[rank].getWins() == ranked[rank].getWins(),
+						"ResultsStore: the top %d differs from the full ranking at rank %d", k, rank);
+				if (rank > 0) {
+					Checks.check(top[rank - 1].compareTo(top[rank]) >= 0, "ResultsStore: the top %d is out of order", k);
+				}
+			}
+		}
+	}
+
+	private static void checkSeries(int window, int maxGames, SplittableRandom random) {
+		ResultSeries series = new ResultSeries(window, maxGames);
+		ArrayList<Byte> codes = new ArrayList<Byte>();
+		int[] counted = new int[4];
+		// some results counted only, before any games are added
+		for (byte code = ResultSeries.WIN; code <= ResultSeries.LOSS; code++) {
+			counted[code] = random.nextInt(10);
+		}
+		series.count(counted[ResultSeries.WIN], counted[ResultSeries.DRAW], counted[ResultSeries.LOSS]);
+		for (int game = random.nextInt(3000); game > 0; game--) {
+			byte code = (byte) (ResultSeries.WIN + random.nextInt(3));
+			series.add(code);
+			codes.add(code);
+		}
+		ResultsChecks.checkSeries(series, window, codes, counted);
+
+		// added to another series, and to itself
+		ResultSeries sum = new ResultSeries(window, maxGames);
+		sum.addAll(series);
+		ResultsChecks.checkSeries(sum, window, codes, counted);
+		series.addAll(series);
+		ArrayList<Byte> doubled = new ArrayList<Byte>(codes);
+		doubled.addAll(codes);
+		int[] doubledCounted = new int[4];
+		for (byte code = ResultSeries.WIN; code <= ResultSeries.LOSS; code++) {
+			doubledCounted[code] = 2 * counted[code];
+		}
+		ResultsChecks.checkSeries(series, window, doubled, doubledCounted);
+	}
+
+	/**
+	 * checks a series holding (the end of) some games, after some results
+	 * counted only
+	 */
+	private static void checkSeries(ResultSeries series, int window, ArrayList<Byte> codes, int[] counted) {
+		int[] counts = counted.clone();
+		int[] windowCounts = new int[4];
+		for (int game = 0; game < codes.size(); game++) {
+			counts[codes.get(game)] += 1;
+			if (game >= codes.size() - window) {
+				windowCounts[codes.get(game)] += 1;
+			}
+		}
+		int numGames = counts[ResultSeries.WIN] + counts[ResultSeries.DRAW] + counts[ResultSeries.LOSS];
+		Checks.check(series.getTotal() == numGames, "ResultSeries: total %d, expected %d", series.getTotal(), numGames);
+		int windowSize = Math.min(window, codes.size());
+		double[][] proportions = series.cumulativeProportions();
+		for (byte code = ResultSeries.WIN; code <= ResultSeries.LOSS; code++) {
+			Checks.check(series.getCount(code) == counts[code], "ResultSeries: count of code %d is %d, expected %d",
+					code, series.getCount(code), counts[code]);
+			double windowProportion = (windowSize == 0) ? 0.0 : (double) windowCounts[code] / windowSize;
+			Checks.check(Math.abs(series.getWindowProportion(code) - windowProportion) < 1e-12,
+					"ResultSeries: window proportion of code %d is wrong", code);
+			double[] running = proportions[code - 1];
+			if (running.length > 0) {
+				Checks.check(Math.abs(running[running.length - 1] - (double) counts[code] / numGames) < 1e-12,
+						"ResultSeries: the last running proportion of code %d is wrong", code);
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package noughts_and_crosses;
+
+/**
+ * TournamentChecks checks the circle-method schedule of a parallel
+ * Tournament round: no player is in two games of the same slot, and over
+ * all the slots every ordered pair of distinct players meets exactly once
+ * (so each pair once with each player as noughts), plus one self-play game
+ * per player if self-play is on
+ * @author H Gulliver
+ *
+ */
+final class TournamentChecks {
+	private static final int MAX_PLAYERS = 12;
+
+	private TournamentChecks() {
+		// static methods only
+	}
+
+	static void run() {
+		for (int numPlayers = 1; numPlayers <= MAX_PLAYERS; numPlayers++) {
+			TournamentChecks.checkSchedule(numPlayers, false);
+			TournamentChecks.checkSchedule(numPlayers, true);
+		}
+	}
+
+	private static void checkSchedule(int numPlayers, boolean selfPlay) {
+		int[][] meetings = new int[numPlayers][numPlayers];
+		for (int[] slot : Tournament.listSlots(numPlayers, selfPlay)) {
+			boolean[] isPlaying = new boolean[numPlayers];
+			for (int game = 0; game < slot.length; game += 2) {
+				int noughts = slot[game];
+				int crosses = slot[game + 1];
+				Checks.check(!isPlaying[noughts] && !isPlaying[crosses],
+						"%d players: a player is in two games of one slot", numPlayers);
+				isPlaying[noughts] = true;
+				isPlaying[crosses] = true;
+				meetings[noughts][crosses] += 1;
+			}
+		}
+		for (int noughts = 0; noughts < numPlayers; noughts++) {
+			for (int crosses = 0; crosses < numPlayers; crosses++) {
+				int expected = (noughts != crosses || selfPlay) ? 1 : 0;
+				Checks.check(meetings[noughts][crosses] == expected, "%d players%s: %d met %d as noughts %d times",
+						numPlayers, selfPlay ? " with self-play" : "", noughts, crosses, meetings[noughts][crosses]);
+			}
+		}
+	}
+}